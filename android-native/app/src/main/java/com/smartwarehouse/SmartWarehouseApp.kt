@@ -1,12 +1,28 @@
 package com.smartwarehouse
 
 import android.app.Application
+import androidx.hilt.work.HiltWorkerFactory
+import androidx.work.Configuration
+import com.smartwarehouse.data.sync.ItemOutboxWorker
 import dagger.hilt.android.HiltAndroidApp
+import javax.inject.Inject
 
 @HiltAndroidApp
-class SmartWarehouseApp : Application() {
+class SmartWarehouseApp : Application(), Configuration.Provider {
+    
+    @Inject
+    lateinit var workerFactory: HiltWorkerFactory
+    
+    override val workManagerConfiguration: Configuration
+        get() = Configuration.Builder()
+            .setWorkerFactory(workerFactory)
+            .build()
+    
     override fun onCreate() {
         super.onCreate()
         // Initialize any app-level dependencies here
+        
+        // Deliver item writes still queued from a previous session
+        ItemOutboxWorker.enqueue(this)
     }
 }
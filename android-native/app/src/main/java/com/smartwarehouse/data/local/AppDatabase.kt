@@ -0,0 +1,80 @@
+package com.smartwarehouse.data.local
+
+import androidx.room.Database
+import androidx.room.RoomDatabase
+import androidx.room.TypeConverter
+import androidx.room.TypeConverters
+import androidx.room.migration.Migration
+import androidx.sqlite.db.SupportSQLiteDatabase
+import com.google.gson.Gson
+import com.google.gson.reflect.TypeToken
+
+/**
+ * Offline cache of the warehouse inventory, per household, and the queue of writes made offline
+ */
+@Database(
+    entities = [
+        ItemEntity::class,
+        RoomEntity::class,
+        CabinetEntity::class,
+        CategoryEntity::class,
+        ItemRemoteKeyEntity::class,
+        ItemOutboxEntity::class
+    ],
+    version = 4,
+    exportSchema = false
+)
+@TypeConverters(Converters::class)
+abstract class AppDatabase : RoomDatabase() {
+    abstract fun itemDao(): ItemDao
+    abstract fun itemOutboxDao(): ItemOutboxDao
+
+    companion object {
+        const val DATABASE_NAME = "smart_warehouse.db"
+
+        val MIGRATION_2_3 = object : Migration(2, 3) {
+            override fun migrate(db: SupportSQLiteDatabase) {
+                db.execSQL(
+                    """
+                    CREATE TABLE IF NOT EXISTS `item_outbox` (
+                        `id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL,
+                        `householdId` TEXT NOT NULL,
+                        `type` TEXT NOT NULL,
+                        `itemId` TEXT NOT NULL,
+                        `payload` TEXT,
+                        `baseUpdatedAt` TEXT,
+                        `state` TEXT NOT NULL,
+                        `attempts` INTEGER NOT NULL,
+                        `lastError` TEXT,
+                        `createdAt` INTEGER NOT NULL
+                    )
+                    """.trimIndent()
+                )
+                db.execSQL("CREATE INDEX IF NOT EXISTS `index_item_outbox_itemId` ON `item_outbox` (`itemId`)")
+            }
+        }
+        
+        val MIGRATION_3_4 = object : Migration(3, 4) {
+            override fun migrate(db: SupportSQLiteDatabase) {
+                db.execSQL("ALTER TABLE `item_outbox` ADD COLUMN `idempotencyKey` TEXT NOT NULL DEFAULT ''")
+                // Writes queued before the upgrade get a random key of their own
+                db.execSQL("UPDATE `item_outbox` SET `idempotencyKey` = lower(hex(randomblob(16))) WHERE `idempotencyKey` = ''")
+            }
+        }
+    }
+}
+
+class Converters {
+    private val gson = Gson()
+    private val stringListType = object : TypeToken<List<String>>() {}.type
+
+    @TypeConverter
+    fun fromStringList(value: List<String>?): String? {
+        return value?.let { gson.toJson(it) }
+    }
+
+    @TypeConverter
+    fun toStringList(value: String?): List<String>? {
+        return value?.let { gson.fromJson(it, stringListType) }
+    }
+}
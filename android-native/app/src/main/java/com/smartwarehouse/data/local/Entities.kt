@@ -0,0 +1,266 @@
+package com.smartwarehouse.data.local
+
+import androidx.room.ColumnInfo
+import androidx.room.Embedded
+import androidx.room.Entity
+import androidx.room.Index
+import androidx.room.PrimaryKey
+import androidx.room.Relation
+import com.smartwarehouse.domain.model.Cabinet
+import com.smartwarehouse.domain.model.Category
+import com.smartwarehouse.domain.model.Item
+import com.smartwarehouse.domain.model.Room
+import java.util.UUID
+
+/**
+ * Room entities for the offline cache. Every row is scoped to the household it was
+ * loaded for; relations are kept as plain id columns (no foreign keys) because the
+ * API delivers items, rooms and categories independently of each other.
+ */
+
+@Entity(
+    tableName = "items",
+    indices = [
+        Index("householdId"),
+        Index("roomId"),
+        Index("categoryId")
+    ]
+)
+data class ItemEntity(
+    @PrimaryKey val id: String,
+    val householdId: String,
+    val name: String,
+    val description: String? = null,
+    val quantity: Int,
+    val minQuantity: Int = 0,
+    val barcode: String? = null,
+    val qrCode: String? = null,
+    val imageUrl: String? = null,
+    val tags: List<String>? = null,
+    val buyDate: String? = null,
+    val buyCost: Double? = null,
+    val buyLocation: String? = null,
+    val invoiceNumber: String? = null,
+    val sellerName: String? = null,
+    val categoryId: String? = null,
+    val roomId: String? = null,
+    val cabinetId: String? = null,
+    val createdAt: String? = null,
+    val updatedAt: String? = null
+)
+
+@Entity(tableName = "rooms", indices = [Index("householdId")])
+data class RoomEntity(
+    @PrimaryKey val id: String,
+    val householdId: String,
+    val name: String,
+    val description: String? = null,
+    val icon: String? = null
+)
+
+@Entity(tableName = "cabinets", indices = [Index("householdId"), Index("roomId")])
+data class CabinetEntity(
+    @PrimaryKey val id: String,
+    val householdId: String,
+    val roomId: String? = null,
+    val name: String,
+    val description: String? = null
+)
+
+@Entity(tableName = "categories", indices = [Index("householdId")])
+data class CategoryEntity(
+    @PrimaryKey val id: String,
+    val householdId: String,
+    val name: String,
+    val icon: String? = null,
+    val parentId: String? = null
+)
+
+data class CategoryWithParent(
+    @Embedded val category: CategoryEntity,
+    @Relation(parentColumn = "parentId", entityColumn = "id")
+    val parent: CategoryEntity?
+)
+
+/**
+ * An item row joined with its location and category, enough to rebuild the domain Item
+ */
+data class CachedItem(
+    @Embedded val item: ItemEntity,
+    @Relation(entity = CategoryEntity::class, parentColumn = "categoryId", entityColumn = "id")
+    val category: CategoryWithParent?,
+    @Relation(parentColumn = "roomId", entityColumn = "id")
+    val room: RoomEntity?,
+    @Relation(parentColumn = "cabinetId", entityColumn = "id")
+    val cabinet: CabinetEntity?
+)
+
+/**
+ * Paging position of one item list (household + filters), so the RemoteMediator can
+ * resume appending where it stopped. nextPage is null once the last page is cached.
+ */
+@Entity(tableName = "item_remote_keys")
+data class ItemRemoteKeyEntity(
+    @PrimaryKey val queryKey: String,
+    val nextPage: Int?,
+    val total: Int? = null
+)
+
+/**
+ * A local item write waiting to be replayed against the API, oldest id first.
+ * [itemId] is a "local-" id until the item's create has been accepted by the server.
+ * [baseUpdatedAt] is the item's updatedAt when the write was made, used to detect
+ * that someone else changed the item in the meantime. [idempotencyKey] is sent with every
+ * attempt, so the server applies a write whose response never arrived only once.
+ */
+@Entity(tableName = "item_outbox", indices = [Index("itemId")])
+data class ItemOutboxEntity(
+    @PrimaryKey(autoGenerate = true) val id: Long = 0,
+    val householdId: String,
+    val type: String,
+    val itemId: String,
+    val payload: String? = null,
+    val baseUpdatedAt: String? = null,
+    val state: String = STATE_PENDING,
+    val attempts: Int = 0,
+    val lastError: String? = null,
+    val createdAt: Long = System.currentTimeMillis(),
+    @ColumnInfo(defaultValue = "") val idempotencyKey: String = UUID.randomUUID().toString()
+) {
+    companion object {
+        const val TYPE_CREATE = "create"
+        const val TYPE_UPDATE = "update"
+        const val TYPE_CHECKOUT = "checkout"
+        const val TYPE_DELETE = "delete"
+
+        const val STATE_PENDING = "pending"
+        // Rejected with 409; waits for the user to keep or discard it
+        const val STATE_CONFLICT = "conflict"
+        // Rejected for good (e.g. 400 / 404); kept only so the user can see it
+        const val STATE_FAILED = "failed"
+    }
+}
+
+/**
+ * Rows to write for one API response: the items plus every room, cabinet and
+ * category (including parent categories) they reference
+ */
+data class CacheRows(
+    val items: List<ItemEntity>,
+    val rooms: List<RoomEntity>,
+    val cabinets: List<CabinetEntity>,
+    val categories: List<CategoryEntity>
+)
+
+// ========== Mapping ==========
+
+fun List<Item>.toCacheRows(householdId: String): CacheRows {
+    val rooms = LinkedHashMap<String, RoomEntity>()
+    val cabinets = LinkedHashMap<String, CabinetEntity>()
+    val categories = LinkedHashMap<String, CategoryEntity>()
+
+    val items = map { item ->
+        item.room?.let { rooms[it.id] = it.toEntity(householdId) }
+        item.cabinet?.let { cabinets[it.id] = it.toEntity(householdId, item.room?.id) }
+
+        var category = item.category
+        while (category != null && category.id !in categories) {
+            categories[category.id] = category.toEntity(householdId)
+            category = category.parent
+        }
+
+        item.toEntity(householdId)
+    }
+
+    return CacheRows(items, rooms.values.toList(), cabinets.values.toList(), categories.values.toList())
+}
+
+fun Item.toEntity(householdId: String) = ItemEntity(
+    id = id,
+    householdId = householdId,
+    name = name,
+    description = description,
+    quantity = quantity,
+    minQuantity = minQuantity,
+    barcode = barcode,
+    qrCode = qrCode,
+    imageUrl = imageUrl,
+    tags = tags,
+    buyDate = buyDate,
+    buyCost = buyCost,
+    buyLocation = buyLocation,
+    invoiceNumber = invoiceNumber,
+    sellerName = sellerName,
+    categoryId = category?.id,
+    roomId = room?.id,
+    cabinetId = cabinet?.id,
+    createdAt = createdAt,
+    updatedAt = updatedAt
+)
+
+fun Room.toEntity(householdId: String) = RoomEntity(
+    id = id,
+    householdId = householdId,
+    name = name,
+    description = description,
+    icon = icon
+)
+
+fun Cabinet.toEntity(householdId: String, roomId: String?) = CabinetEntity(
+    id = id,
+    householdId = householdId,
+    roomId = roomId,
+    name = name,
+    description = description
+)
+
+fun Category.toEntity(householdId: String) = CategoryEntity(
+    id = id,
+    householdId = householdId,
+    name = name,
+    icon = icon,
+    parentId = parentId ?: parent?.id
+)
+
+fun CachedItem.toDomain() = Item(
+    id = item.id,
+    name = item.name,
+    description = item.description,
+    quantity = item.quantity,
+    minQuantity = item.minQuantity,
+    barcode = item.barcode,
+    qrCode = item.qrCode,
+    imageUrl = item.imageUrl,
+    tags = item.tags,
+    buyDate = item.buyDate,
+    buyCost = item.buyCost,
+    buyLocation = item.buyLocation,
+    invoiceNumber = item.invoiceNumber,
+    sellerName = item.sellerName,
+    category = category?.let { it.category.toDomain(parent = it.parent?.toDomain()) },
+    room = room?.toDomain(),
+    cabinet = cabinet?.toDomain(),
+    createdAt = item.createdAt,
+    updatedAt = item.updatedAt
+)
+
+fun RoomEntity.toDomain() = Room(
+    id = id,
+    name = name,
+    description = description,
+    icon = icon
+)
+
+fun CabinetEntity.toDomain() = Cabinet(
+    id = id,
+    name = name,
+    description = description
+)
+
+fun CategoryEntity.toDomain(parent: Category? = null) = Category(
+    id = id,
+    name = name,
+    icon = icon,
+    parentId = parentId,
+    parent = parent
+)
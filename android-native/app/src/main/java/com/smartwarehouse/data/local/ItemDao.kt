@@ -0,0 +1,212 @@
+package com.smartwarehouse.data.local
+
+import androidx.paging.PagingSource
+import androidx.room.Dao
+import androidx.room.Query
+import androidx.room.Transaction
+import androidx.room.Upsert
+import kotlinx.coroutines.flow.Flow
+
+private const val DELETE_BATCH_SIZE = 500
+
+/**
+ * DAO for the cached items and the rooms, cabinets and categories they reference
+ */
+@Dao
+interface ItemDao {
+
+    // ========== Items ==========
+
+    @Transaction
+    @Query(
+        """
+        SELECT * FROM items
+        WHERE householdId = :householdId
+            AND (:roomId IS NULL OR roomId = :roomId)
+            AND (:categoryId IS NULL OR categoryId = :categoryId)
+        ORDER BY createdAt DESC, rowid
+        """
+    )
+    fun observeItems(
+        householdId: String,
+        roomId: String? = null,
+        categoryId: String? = null
+    ): Flow<List<CachedItem>>
+
+    // rowid keeps the server order for rows without createdAt, as pages are inserted in order
+    @Transaction
+    @Query(
+        """
+        SELECT * FROM items
+        WHERE householdId = :householdId
+            AND (:roomId IS NULL OR roomId = :roomId)
+            AND (:categoryId IS NULL OR categoryId = :categoryId)
+        ORDER BY createdAt DESC, rowid
+        """
+    )
+    fun pagingSource(
+        householdId: String,
+        roomId: String? = null,
+        categoryId: String? = null
+    ): PagingSource<Int, CachedItem>
+
+    @Transaction
+    @Query("SELECT * FROM items WHERE id = :id")
+    suspend fun getItem(id: String): CachedItem?
+
+    @Upsert
+    suspend fun upsertItems(items: List<ItemEntity>)
+
+    @Query("DELETE FROM items WHERE id = :id")
+    suspend fun deleteItem(id: String)
+
+    @Query("UPDATE items SET id = :newId WHERE id = :oldId")
+    suspend fun renameItem(oldId: String, newId: String)
+
+    // Server-driven deletes leave items with unsynced local writes alone
+    @Query(
+        """
+        DELETE FROM items
+        WHERE id IN (:ids)
+            AND id NOT IN (SELECT itemId FROM item_outbox WHERE state != 'failed')
+        """
+    )
+    suspend fun deleteItemsById(ids: List<String>)
+
+    @Query(
+        """
+        DELETE FROM items
+        WHERE householdId = :householdId
+            AND (:roomId IS NULL OR roomId = :roomId)
+            AND (:categoryId IS NULL OR categoryId = :categoryId)
+            AND id NOT IN (SELECT itemId FROM item_outbox WHERE state != 'failed')
+        """
+    )
+    suspend fun deleteItems(householdId: String, roomId: String?, categoryId: String?)
+
+    @Query("SELECT DISTINCT itemId FROM item_outbox WHERE state != 'failed'")
+    suspend fun getLocallyModifiedItemIds(): List<String>
+
+    // ========== Rooms, Cabinets & Categories ==========
+
+    // Write requests name rooms, cabinets and categories by id or by name
+    @Query("SELECT * FROM rooms WHERE householdId = :householdId AND (id = :key OR name = :key) LIMIT 1")
+    suspend fun findRoom(householdId: String, key: String): RoomEntity?
+
+    @Query(
+        """
+        SELECT * FROM cabinets
+        WHERE householdId = :householdId
+            AND (:roomId IS NULL OR roomId = :roomId)
+            AND (id = :key OR name = :key)
+        LIMIT 1
+        """
+    )
+    suspend fun findCabinet(householdId: String, roomId: String?, key: String): CabinetEntity?
+
+    @Query("SELECT * FROM categories WHERE householdId = :householdId AND (id = :key OR name = :key) LIMIT 1")
+    suspend fun findCategory(householdId: String, key: String): CategoryEntity?
+
+    @Query("SELECT * FROM rooms WHERE householdId = :householdId ORDER BY name")
+    fun observeRooms(householdId: String): Flow<List<RoomEntity>>
+
+    @Query("SELECT * FROM categories WHERE householdId = :householdId ORDER BY name")
+    fun observeCategories(householdId: String): Flow<List<CategoryEntity>>
+
+    @Upsert
+    suspend fun upsertRooms(rooms: List<RoomEntity>)
+
+    @Upsert
+    suspend fun upsertCabinets(cabinets: List<CabinetEntity>)
+
+    @Upsert
+    suspend fun upsertCategories(categories: List<CategoryEntity>)
+
+    // ========== Remote Keys ==========
+
+    @Query("SELECT * FROM item_remote_keys WHERE queryKey = :queryKey")
+    suspend fun getRemoteKey(queryKey: String): ItemRemoteKeyEntity?
+
+    @Upsert
+    suspend fun upsertRemoteKey(key: ItemRemoteKeyEntity)
+
+    // ========== Writes ==========
+
+    @Transaction
+    suspend fun upsert(rows: CacheRows) {
+        upsertRooms(rows.rooms)
+        upsertCabinets(rows.cabinets)
+        upsertCategories(rows.categories)
+        upsertItems(rows.items)
+    }
+
+    /**
+     * Like [upsert], but items with queued local writes keep their optimistic state
+     * until the outbox has replayed them.
+     */
+    @Transaction
+    suspend fun upsertFromServer(rows: CacheRows) {
+        val locallyModified = getLocallyModifiedItemIds().toSet()
+        upsert(
+            if (locallyModified.isEmpty()) rows
+            else rows.copy(items = rows.items.filterNot { it.id in locallyModified })
+        )
+    }
+
+    /**
+     * Replaces the cached items matching the filter with a fresh server snapshot in one
+     * transaction, so observers see a single update and items deleted on the server
+     * disappear from the cache.
+     */
+    @Transaction
+    suspend fun replaceItems(
+        householdId: String,
+        roomId: String?,
+        categoryId: String?,
+        rows: CacheRows
+    ) {
+        deleteItems(householdId, roomId, categoryId)
+        upsertFromServer(rows)
+    }
+
+    /**
+     * Stores one page loaded by the RemoteMediator together with the key of the next
+     * page. A refresh first drops the cached items of that list, as the server order
+     * starts over from page 1; the caller then has to reset the delta sync cursor, which
+     * no longer describes the cache.
+     */
+    @Transaction
+    suspend fun savePage(
+        householdId: String,
+        roomId: String?,
+        categoryId: String?,
+        clear: Boolean,
+        rows: CacheRows,
+        key: ItemRemoteKeyEntity
+    ) {
+        if (clear) {
+            deleteItems(householdId, roomId, categoryId)
+        }
+        upsertFromServer(rows)
+        upsertRemoteKey(key)
+    }
+
+    /**
+     * Applies one page of the delta feed. A full sync (no cursor yet) starts by dropping
+     * the household's cached items, since deletions from before it are not reported.
+     */
+    @Transaction
+    suspend fun applyChanges(
+        householdId: String,
+        clear: Boolean,
+        rows: CacheRows,
+        deletedIds: List<String>
+    ) {
+        if (clear) {
+            deleteItems(householdId, null, null)
+        }
+        upsertFromServer(rows)
+        // Stay below SQLite's bound-parameter limit on older devices
+        deletedIds.chunked(DELETE_BATCH_SIZE).forEach { deleteItemsById(it) }
+    }
+}
@@ -0,0 +1,65 @@
+package com.smartwarehouse.data.local
+
+import androidx.room.Dao
+import androidx.room.Insert
+import androidx.room.Query
+import kotlinx.coroutines.flow.Flow
+
+/**
+ * DAO for the queue of item writes made offline
+ */
+@Dao
+interface ItemOutboxDao {
+
+    @Insert
+    suspend fun insert(entry: ItemOutboxEntity): Long
+
+    @Query("SELECT * FROM item_outbox WHERE id = :id")
+    suspend fun get(id: Long): ItemOutboxEntity?
+
+    @Query("SELECT * FROM item_outbox WHERE state = 'pending' ORDER BY id")
+    suspend fun getPending(): List<ItemOutboxEntity>
+
+    @Query("SELECT DISTINCT itemId FROM item_outbox WHERE state = 'conflict'")
+    suspend fun getConflictedItemIds(): List<String>
+
+    @Query("SELECT COUNT(*) FROM item_outbox WHERE state = 'pending' AND itemId = :itemId")
+    suspend fun countPending(itemId: String): Int
+
+    @Query("SELECT COUNT(*) FROM item_outbox WHERE state = 'pending'")
+    fun observePendingCount(): Flow<Int>
+
+    @Query("SELECT * FROM item_outbox WHERE state != 'pending' ORDER BY id")
+    fun observeUnsynced(): Flow<List<ItemOutboxEntity>>
+
+    @Query("DELETE FROM item_outbox WHERE id = :id")
+    suspend fun delete(id: Long)
+
+    @Query("DELETE FROM item_outbox WHERE itemId = :itemId")
+    suspend fun deleteForItem(itemId: String)
+
+    @Query("UPDATE item_outbox SET state = :state, lastError = :error WHERE id = :id")
+    suspend fun setState(id: Long, state: String, error: String? = null)
+
+    @Query("UPDATE item_outbox SET state = 'failed', lastError = :error WHERE itemId = :itemId AND state = 'pending'")
+    suspend fun failPendingForItem(itemId: String, error: String)
+
+    @Query("UPDATE item_outbox SET attempts = attempts + 1, lastError = :error WHERE id = :id")
+    suspend fun recordAttempt(id: Long, error: String?)
+
+    /**
+     * Points the writes queued for a locally created item at its server id
+     */
+    @Query("UPDATE item_outbox SET itemId = :serverId WHERE itemId = :localId")
+    suspend fun reassignItem(localId: String, serverId: String)
+
+    /**
+     * After one of our own writes succeeds, the remaining writes for the item are based
+     * on the version the server returned, not the one they were made against.
+     */
+    @Query("UPDATE item_outbox SET baseUpdatedAt = :updatedAt WHERE itemId = :itemId AND state = 'pending'")
+    suspend fun rebase(itemId: String, updatedAt: String?)
+
+    @Query("UPDATE item_outbox SET state = 'pending', baseUpdatedAt = NULL, lastError = NULL WHERE id = :id")
+    suspend fun forcePending(id: Long)
+}
@@ -64,6 +64,20 @@ class PreferencesManager @Inject constructor(
         return regularPrefs.getString(KEY_HOUSEHOLD_ID, null)
     }
     
+    // ========== Item Sync ==========
+    
+    fun saveItemSyncCursor(householdId: String, cursor: String) {
+        regularPrefs.edit().putString(KEY_ITEM_SYNC_CURSOR_PREFIX + householdId, cursor).apply()
+    }
+    
+    fun getItemSyncCursor(householdId: String): String? {
+        return regularPrefs.getString(KEY_ITEM_SYNC_CURSOR_PREFIX + householdId, null)
+    }
+    
+    fun clearItemSyncCursor(householdId: String) {
+        regularPrefs.edit().remove(KEY_ITEM_SYNC_CURSOR_PREFIX + householdId).apply()
+    }
+    
     // ========== Language ==========
     
     fun saveLanguage(language: AppLanguage) {
@@ -103,5 +117,6 @@ class PreferencesManager @Inject constructor(
         private const val KEY_USER_ID = "user_id"
         private const val KEY_HOUSEHOLD_ID = "household_id"
         private const val KEY_LANGUAGE = "language"
+        private const val KEY_ITEM_SYNC_CURSOR_PREFIX = "item_sync_cursor_"
     }
 }
@@ -22,16 +22,25 @@ interface ApiService {
     
     // ========== Items ==========
     
+    // page and limit are required: without them the server answers with the web app's
+    // name-grouped array instead of an ItemListResponse of per-item rows
     @GET("warehouse/items")
     suspend fun getItems(
         @Query("language") language: String,
         @Query("householdId") householdId: String? = null,
         @Query("roomId") roomId: String? = null,
         @Query("categoryId") categoryId: String? = null,
-        @Query("page") page: Int? = null,
-        @Query("limit") limit: Int? = null
+        @Query("page") page: Int,
+        @Query("limit") limit: Int
     ): Response<ItemListResponse>
     
+    @GET("warehouse/items/changes")
+    suspend fun getItemChanges(
+        @Query("since") since: String? = null,
+        @Query("householdId") householdId: String? = null,
+        @Query("limit") limit: Int? = null
+    ): Response<ItemChangesResponse>
+    
     @GET("warehouse/items/{id}")
     suspend fun getItem(
         @Path("id") id: String,
@@ -41,19 +50,29 @@ interface ApiService {
     @POST("warehouse/items")
     suspend fun createItem(@Body request: CreateItemRequest): Response<Item>
     
+    @POST("warehouse/items/batch")
+    suspend fun batchItems(@Body request: BatchItemRequest): Response<BatchItemResponse>
+    
     @PUT("warehouse/items/{id}")
     suspend fun updateItem(
         @Path("id") id: String,
         @Body request: UpdateItemRequest
     ): Response<Item>
     
+    // A replay repeating an earlier Idempotency-Key gets the first response instead of
+    // being applied again
     @DELETE("warehouse/items/{id}")
-    suspend fun deleteItem(@Path("id") id: String): Response<Unit>
+    suspend fun deleteItem(
+        @Path("id") id: String,
+        @Query("expectedUpdatedAt") expectedUpdatedAt: String? = null,
+        @Header("Idempotency-Key") idempotencyKey: String? = null
+    ): Response<Unit>
     
     @POST("warehouse/items/{id}/checkout")
     suspend fun checkoutItem(
         @Path("id") id: String,
-        @Body request: CheckoutItemRequest
+        @Body request: CheckoutItemRequest,
+        @Header("Idempotency-Key") idempotencyKey: String? = null
     ): Response<Item>
     
     // ========== Rooms ==========
@@ -193,7 +212,39 @@ data class UpdateItemRequest(
     val cabinet: String? = null,
     val barcode: String? = null,
     val imageUrl: String? = null,
-    val tags: List<String>? = null
+    val tags: List<String>? = null,
+    // updatedAt the change was based on; the server answers 409 if the item changed since
+    val expectedUpdatedAt: String? = null
+)
+
+data class BatchItemRequest(
+    val operations: List<BatchItemOperation>
+)
+
+data class BatchItemOperation(
+    val type: String,
+    val id: String? = null,
+    val create: CreateItemRequest? = null,
+    val update: UpdateItemRequest? = null,
+    // Same role as the Idempotency-Key header of single-item writes
+    val idempotencyKey: String? = null
+) {
+    companion object {
+        const val TYPE_CREATE = "create"
+        const val TYPE_UPDATE = "update"
+    }
+}
+
+data class BatchItemResponse(
+    val results: List<BatchItemResult>
+)
+
+data class BatchItemResult(
+    val index: Int,
+    val success: Boolean,
+    val status: Int,
+    val item: Item? = null,
+    val error: String? = null
 )
 
 data class CheckoutItemRequest(
@@ -257,6 +308,18 @@ data class ItemListResponse(
     val limit: Int? = null
 )
 
+data class ItemChangesResponse(
+    val items: List<Item>,
+    val deleted: List<DeletedItem> = emptyList(),
+    val cursor: String? = null,
+    val hasMore: Boolean = false
+)
+
+data class DeletedItem(
+    val id: String,
+    val deletedAt: String? = null
+)
+
 data class SearchResponse(
     val results: List<Item>,
     val aiInterpretation: String? = null
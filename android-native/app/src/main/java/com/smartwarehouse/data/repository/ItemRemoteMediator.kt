@@ -0,0 +1,98 @@
+package com.smartwarehouse.data.repository
+
+import androidx.paging.ExperimentalPagingApi
+import androidx.paging.LoadType
+import androidx.paging.PagingState
+import androidx.paging.RemoteMediator
+import com.smartwarehouse.data.local.CachedItem
+import com.smartwarehouse.data.local.ItemDao
+import com.smartwarehouse.data.local.ItemRemoteKeyEntity
+import com.smartwarehouse.data.local.toCacheRows
+import com.smartwarehouse.data.remote.ApiService
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+
+/**
+ * Loads one item list page by page from `warehouse/items?page=&limit=` into the Room
+ * cache; the UI pages over the cache, so it keeps working offline with whatever has
+ * been loaded so far. Paged responses hold one row per item (with its room, cabinet and
+ * updatedAt), the same shape the delta sync stores, not the web list's name groups.
+ */
+@OptIn(ExperimentalPagingApi::class)
+class ItemRemoteMediator(
+    private val apiService: ApiService,
+    private val itemDao: ItemDao,
+    private val language: String,
+    private val householdId: String?,
+    private val cacheHouseholdId: String,
+    private val roomId: String?,
+    private val categoryId: String?,
+    private val syncMutex: Mutex,
+    private val onCacheCleared: () -> Unit
+) : RemoteMediator<Int, CachedItem>() {
+
+    private val queryKey = listOf(cacheHouseholdId, roomId.orEmpty(), categoryId.orEmpty()).joinToString("|")
+
+    override suspend fun load(
+        loadType: LoadType,
+        state: PagingState<Int, CachedItem>
+    ): MediatorResult {
+        val page = when (loadType) {
+            LoadType.REFRESH -> 1
+            // Pages are only ever added at the end
+            LoadType.PREPEND -> return MediatorResult.Success(endOfPaginationReached = true)
+            LoadType.APPEND -> itemDao.getRemoteKey(queryKey)?.nextPage
+                ?: return MediatorResult.Success(endOfPaginationReached = true)
+        }
+        val limit = state.config.pageSize
+
+        return try {
+            val response = apiService.getItems(
+                language = language,
+                householdId = householdId,
+                roomId = roomId,
+                categoryId = categoryId,
+                page = page,
+                limit = limit
+            )
+
+            if (!response.isSuccessful) {
+                return MediatorResult.Error(Exception("Failed to load items: ${response.code()}"))
+            }
+
+            val body = response.body()
+            val items = body?.items ?: emptyList()
+            val total = body?.total
+            val endReached = items.size < limit || (total != null && (page - 1) * limit + items.size >= total)
+
+            val save = suspend {
+                itemDao.savePage(
+                    householdId = cacheHouseholdId,
+                    roomId = roomId,
+                    categoryId = categoryId,
+                    clear = loadType == LoadType.REFRESH,
+                    rows = items.toCacheRows(cacheHouseholdId),
+                    key = ItemRemoteKeyEntity(
+                        queryKey = queryKey,
+                        nextPage = if (endReached) null else page + 1,
+                        total = total
+                    )
+                )
+            }
+            if (loadType == LoadType.REFRESH) {
+                // The refresh drops cached items the delta sync put there, so the next sync
+                // has to start over; holding the sync lock keeps one from running in between
+                syncMutex.withLock {
+                    save()
+                    onCacheCleared()
+                }
+            } else {
+                save()
+            }
+
+            MediatorResult.Success(endOfPaginationReached = endReached)
+        } catch (e: Exception) {
+            MediatorResult.Error(e)
+        }
+    }
+}
@@ -1,19 +1,48 @@
 package com.smartwarehouse.data.repository
 
+import android.content.Context
+import androidx.paging.ExperimentalPagingApi
+import androidx.paging.Pager
+import androidx.paging.PagingConfig
+import androidx.paging.PagingData
+import androidx.paging.map
+import androidx.room.withTransaction
+import com.google.gson.Gson
+import com.smartwarehouse.data.local.AppDatabase
+import com.smartwarehouse.data.local.ItemDao
+import com.smartwarehouse.data.local.ItemEntity
+import com.smartwarehouse.data.local.ItemOutboxDao
+import com.smartwarehouse.data.local.ItemOutboxEntity
 import com.smartwarehouse.data.local.PreferencesManager
+import com.smartwarehouse.data.local.toCacheRows
+import com.smartwarehouse.data.local.toDomain
 import com.smartwarehouse.data.remote.*
+import com.smartwarehouse.data.sync.ItemOutboxWorker
 import com.smartwarehouse.domain.model.Item
+import dagger.hilt.android.qualifiers.ApplicationContext
 import kotlinx.coroutines.flow.Flow
-import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.channelFlow
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import java.time.Instant
+import java.util.UUID
 import javax.inject.Inject
 import javax.inject.Singleton
 
 /**
- * Repository for Item operations
+ * Repository for Item operations, backed by the Room cache so lists are available offline.
+ * Writes are applied to the cache right away and queued in the outbox, which
+ * [ItemOutboxWorker] replays against the API once there is a connection.
  */
 @Singleton
 class ItemRepository @Inject constructor(
+    @ApplicationContext private val context: Context,
     private val apiService: ApiService,
+    private val database: AppDatabase,
+    private val itemDao: ItemDao,
+    private val itemOutboxDao: ItemOutboxDao,
     private val preferencesManager: PreferencesManager
 ) {
     private val currentLanguage: String
@@ -22,25 +51,161 @@ class ItemRepository @Inject constructor(
     private val householdId: String?
         get() = preferencesManager.getHouseholdId()
     
+    // Cache partition for the current household; "" when the server picks the default one
+    private val cacheHouseholdId: String
+        get() = householdId ?: NO_HOUSEHOLD
+    
+    // Screens collecting getItems at the same time share one delta sync; paging refreshes
+    // take it too, as they clear cached items and reset the sync cursor
+    private val syncMutex = Mutex()
+    
+    private val replayMutex = Mutex()
+    
+    // "local-" ids whose create the server has accepted, mapped to the server id; only
+    // touched under replayMutex
+    private val createdItemIds = mutableMapOf<String, String>()
+    
+    private val gson = Gson()
+    
+    /**
+     * Emits the cached items immediately, then again whenever the cache changes, while a
+     * delta [sync] runs in the background. A failed sync is only emitted when there is
+     * nothing cached to show.
+     */
     fun getItems(
         roomId: String? = null,
         categoryId: String? = null
-    ): Flow<Result<List<Item>>> = flow {
-        try {
-            val response = apiService.getItems(
+    ): Flow<Result<List<Item>>> = channelFlow {
+        var hasCachedItems = false
+        
+        launch {
+            sync().onFailure { error ->
+                if (!hasCachedItems) {
+                    send(Result.failure(error))
+                }
+            }
+        }
+        
+        itemDao.observeItems(cacheHouseholdId, roomId, categoryId).collect { rows ->
+            hasCachedItems = hasCachedItems || rows.isNotEmpty()
+            send(Result.success(rows.map { it.toDomain() }))
+        }
+    }
+    
+    /**
+     * Paged variant of [getItems] for list screens: pages of [PAGE_SIZE] items are fetched
+     * as the list scrolls and stored in the cache, so large households are never loaded
+     * (or held in memory) in one piece.
+     */
+    @OptIn(ExperimentalPagingApi::class)
+    fun getPagedItems(
+        roomId: String? = null,
+        categoryId: String? = null
+    ): Flow<PagingData<Item>> {
+        val cacheKey = cacheHouseholdId
+        return Pager(
+            config = PagingConfig(
+                pageSize = PAGE_SIZE,
+                initialLoadSize = PAGE_SIZE,
+                enablePlaceholders = false
+            ),
+            remoteMediator = ItemRemoteMediator(
+                apiService = apiService,
+                itemDao = itemDao,
                 language = currentLanguage,
                 householdId = householdId,
+                cacheHouseholdId = cacheKey,
                 roomId = roomId,
-                categoryId = categoryId
-            )
+                categoryId = categoryId,
+                syncMutex = syncMutex,
+                onCacheCleared = { preferencesManager.clearItemSyncCursor(cacheKey) }
+            ),
+            pagingSourceFactory = { itemDao.pagingSource(cacheKey, roomId, categoryId) }
+        ).flow.map { pagingData -> pagingData.map { it.toDomain() } }
+    }
+    
+    /**
+     * Pulls the items created, updated or deleted since the last sync cursor (based on
+     * Item.updatedAt) and applies them to the cache, following `hasMore` until caught up.
+     * Without a cursor this is a full sync of the household. Returns the number of
+     * changes applied.
+     */
+    suspend fun sync(): Result<Int> = syncMutex.withLock {
+        val cacheKey = cacheHouseholdId
+        try {
+            var cursor = preferencesManager.getItemSyncCursor(cacheKey)
+            var applied = 0
             
-            if (response.isSuccessful) {
-                emit(Result.success(response.body()?.items ?: emptyList()))
-            } else {
-                emit(Result.failure(Exception("Failed to load items: ${response.code()}")))
+            while (true) {
+                val response = apiService.getItemChanges(since = cursor, householdId = householdId)
+                if (!response.isSuccessful) {
+                    return@withLock Result.failure(Exception("Failed to sync items: ${response.code()}"))
+                }
+                val changes = response.body() ?: break
+                
+                itemDao.applyChanges(
+                    householdId = cacheKey,
+                    clear = cursor == null,
+                    rows = changes.items.toCacheRows(cacheKey),
+                    deletedIds = changes.deleted.map { it.id }
+                )
+                applied += changes.items.size + changes.deleted.size
+                
+                val previous = cursor
+                cursor = changes.cursor ?: cursor
+                cursor?.let { preferencesManager.saveItemSyncCursor(cacheKey, it) }
+                
+                // Stop if the server reports more but the cursor did not move
+                if (!changes.hasMore || cursor == previous) {
+                    break
+                }
             }
+            
+            Result.success(applied)
         } catch (e: Exception) {
-            emit(Result.failure(e))
+            Result.failure(e)
+        }
+    }
+    
+    /**
+     * Reloads the items matching the filter from the network and replaces them in the cache.
+     * The list is read page by page, as only the paged form of `warehouse/items` returns
+     * per-item rows; the cache is replaced once every page has arrived.
+     */
+    suspend fun refreshItems(
+        roomId: String? = null,
+        categoryId: String? = null
+    ): Result<Unit> {
+        val cacheKey = cacheHouseholdId
+        return try {
+            val items = mutableListOf<Item>()
+            var page = 1
+            while (true) {
+                val response = apiService.getItems(
+                    language = currentLanguage,
+                    householdId = householdId,
+                    roomId = roomId,
+                    categoryId = categoryId,
+                    page = page,
+                    limit = REFRESH_PAGE_SIZE
+                )
+                if (!response.isSuccessful) {
+                    return Result.failure(Exception("Failed to load items: ${response.code()}"))
+                }
+                
+                val body = response.body() ?: break
+                items += body.items
+                val total = body.total
+                if (body.items.size < REFRESH_PAGE_SIZE || (total != null && items.size >= total)) {
+                    break
+                }
+                page++
+            }
+            
+            itemDao.replaceItems(cacheKey, roomId, categoryId, items.toCacheRows(cacheKey))
+            Result.success(Unit)
+        } catch (e: Exception) {
+            Result.failure(e)
         }
     }
     
@@ -48,69 +213,488 @@ class ItemRepository @Inject constructor(
         return try {
             val response = apiService.getItem(id, currentLanguage)
             if (response.isSuccessful && response.body() != null) {
-                Result.success(response.body()!!)
+                val item = response.body()!!
+                cacheItem(item)
+                Result.success(item)
             } else {
                 Result.failure(Exception("Failed to load item: ${response.code()}"))
             }
         } catch (e: Exception) {
-            Result.failure(e)
+            // Offline: fall back to the cached copy
+            cachedItem(id) ?: Result.failure(e)
         }
     }
     
+    private suspend fun cachedItem(id: String): Result<Item>? {
+        return itemDao.getItem(id)?.let { Result.success(it.toDomain()) }
+    }
+    
+    /**
+     * Write responses often carry no nested room / cabinet / category, so the cached
+     * relations are kept unless the response names new ones.
+     */
+    private suspend fun cacheItem(item: Item) {
+        val rows = listOf(item).toCacheRows(cacheHouseholdId)
+        val cached = itemDao.getItem(item.id)?.item
+        val row = rows.items.single().let { row ->
+            if (cached == null) row else row.copy(
+                roomId = row.roomId ?: cached.roomId,
+                cabinetId = row.cabinetId ?: cached.cabinetId,
+                categoryId = row.categoryId ?: cached.categoryId
+            )
+        }
+        itemDao.upsertFromServer(rows.copy(items = listOf(row)))
+    }
+    
+    /**
+     * Adds the item to the cache under a temporary "local-" id and queues the create;
+     * the id is replaced by the server's once the outbox has replayed it.
+     */
     suspend fun createItem(request: CreateItemRequest): Result<Item> {
         return try {
+            val cacheKey = cacheHouseholdId
+            val localId = LOCAL_ID_PREFIX + UUID.randomUUID()
             val requestWithHousehold = request.copy(householdId = householdId)
-            val response = apiService.createItem(requestWithHousehold)
-            if (response.isSuccessful && response.body() != null) {
-                Result.success(response.body()!!)
-            } else {
-                Result.failure(Exception("Failed to create item: ${response.code()}"))
+            val roomId = itemDao.findRoom(cacheKey, request.room)?.id
+            val row = ItemEntity(
+                id = localId,
+                householdId = cacheKey,
+                name = request.name,
+                description = request.description,
+                quantity = request.quantity,
+                minQuantity = request.minQuantity,
+                barcode = request.barcode,
+                qrCode = request.qrCode,
+                imageUrl = request.imageUrl,
+                tags = request.tags,
+                buyDate = request.buyDate,
+                buyCost = request.buyCost,
+                buyLocation = request.buyLocation,
+                categoryId = (request.subcategory ?: request.category)?.let { itemDao.findCategory(cacheKey, it)?.id },
+                roomId = roomId,
+                cabinetId = request.cabinet?.let { itemDao.findCabinet(cacheKey, roomId, it)?.id },
+                createdAt = Instant.now().toString()
+            )
+            
+            enqueueWrite(
+                ItemOutboxEntity(
+                    householdId = cacheKey,
+                    type = ItemOutboxEntity.TYPE_CREATE,
+                    itemId = localId,
+                    payload = gson.toJson(requestWithHousehold)
+                )
+            ) {
+                itemDao.upsertItems(listOf(row))
             }
+            cachedItem(localId) ?: Result.failure(Exception("Failed to create item"))
         } catch (e: Exception) {
             Result.failure(e)
         }
     }
     
+    /**
+     * Creates several items at once, e.g. the lines of an imported receipt
+     */
+    suspend fun createItems(requests: List<CreateItemRequest>): List<Result<Item>> {
+        return writeItems(requests.map { ItemWrite.Create(it) })
+    }
+    
+    /**
+     * Sends pending writes through `warehouse/items/batch`, [MAX_BATCH_SIZE] per request
+     * instead of one round trip each. Repeated updates of the same item are coalesced
+     * into one. Returns one result per write, in the order given; a failed request
+     * fails every write it carried.
+     */
+    suspend fun writeItems(writes: List<ItemWrite>): List<Result<Item>> {
+        val results = arrayOfNulls<Result<Item>>(writes.size)
+        
+        for (chunk in writes.coalesce().chunked(MAX_BATCH_SIZE)) {
+            val outcomes: List<Result<Item>> = try {
+                val request = BatchItemRequest(chunk.map { it.write.toOperation(householdId) })
+                val response = apiService.batchItems(request)
+                val rows = response.body()?.results?.associateBy { it.index }
+                if (response.isSuccessful && rows != null) {
+                    chunk.indices.map { position ->
+                        val row = rows[position]
+                        val item = row?.item
+                        if (row != null && row.success && item != null) {
+                            cacheItem(item)
+                            Result.success(item)
+                        } else {
+                            Result.failure(ItemWriteException(row?.status, row?.error ?: "Failed to save item: ${row?.status}"))
+                        }
+                    }
+                } else {
+                    val error = ItemWriteException(response.code(), "Failed to save items: ${response.code()}")
+                    chunk.map { Result.failure(error) }
+                }
+            } catch (e: Exception) {
+                chunk.map { Result.failure(e) }
+            }
+            
+            chunk.forEachIndexed { position, coalesced ->
+                coalesced.sourceIndices.forEach { results[it] = outcomes[position] }
+            }
+        }
+        
+        return results.map { it!! }
+    }
+    
     suspend fun updateItem(id: String, request: UpdateItemRequest): Result<Item> {
         return try {
-            val response = apiService.updateItem(id, request)
-            if (response.isSuccessful && response.body() != null) {
-                Result.success(response.body()!!)
-            } else {
-                Result.failure(Exception("Failed to update item: ${response.code()}"))
+            val cached = baseRowFor(id).getOrElse { return Result.failure(it) }
+                ?: return updateItemOnline(id, request)
+            
+            enqueueWrite(
+                ItemOutboxEntity(
+                    householdId = cached.householdId,
+                    type = ItemOutboxEntity.TYPE_UPDATE,
+                    itemId = id,
+                    payload = gson.toJson(request),
+                    baseUpdatedAt = cached.updatedAt
+                )
+            ) {
+                itemDao.upsertItems(listOf(applyUpdate(cached, request)))
             }
+            cachedItem(id) ?: Result.failure(Exception("Failed to update item"))
         } catch (e: Exception) {
             Result.failure(e)
         }
     }
     
+    // Items that are not cached have nothing to apply optimistically to
+    private suspend fun updateItemOnline(id: String, request: UpdateItemRequest): Result<Item> {
+        val response = apiService.updateItem(id, request)
+        return if (response.isSuccessful && response.body() != null) {
+            val item = response.body()!!
+            cacheItem(item)
+            Result.success(item)
+        } else {
+            Result.failure(Exception("Failed to update item: ${response.code()}"))
+        }
+    }
+    
+    private suspend fun applyUpdate(row: ItemEntity, request: UpdateItemRequest): ItemEntity {
+        val roomId = request.room?.let { itemDao.findRoom(row.householdId, it)?.id ?: row.roomId } ?: row.roomId
+        return row.copy(
+            name = request.name ?: row.name,
+            description = request.description ?: row.description,
+            quantity = request.quantity ?: row.quantity,
+            minQuantity = request.minQuantity ?: row.minQuantity,
+            barcode = request.barcode ?: row.barcode,
+            imageUrl = request.imageUrl ?: row.imageUrl,
+            tags = request.tags ?: row.tags,
+            roomId = roomId,
+            cabinetId = request.cabinet?.let { itemDao.findCabinet(row.householdId, roomId, it)?.id } ?: row.cabinetId,
+            categoryId = request.category?.let { itemDao.findCategory(row.householdId, it)?.id } ?: row.categoryId
+        )
+    }
+    
     suspend fun deleteItem(id: String): Result<Unit> {
         return try {
-            val response = apiService.deleteItem(id)
-            if (response.isSuccessful) {
-                Result.success(Unit)
-            } else {
-                Result.failure(Exception("Failed to delete item: ${response.code()}"))
+            if (id.startsWith(LOCAL_ID_PREFIX)) {
+                // Under the replay lock, so a create in flight cannot be accepted (and its
+                // row put back under the server id) after the local row is dropped
+                val serverId = replayMutex.withLock {
+                    createdItemIds[id] ?: run {
+                        // Never reached the server: dropping its queued writes is enough
+                        database.withTransaction {
+                            itemOutboxDao.deleteForItem(id)
+                            itemDao.deleteItem(id)
+                        }
+                        null
+                    }
+                }
+                // The create went through while waiting for the lock
+                return if (serverId != null) deleteItem(serverId) else Result.success(Unit)
             }
+            
+            val cached = baseRowFor(id).getOrElse { return Result.failure(it) }
+            enqueueWrite(
+                ItemOutboxEntity(
+                    householdId = cached?.householdId ?: cacheHouseholdId,
+                    type = ItemOutboxEntity.TYPE_DELETE,
+                    itemId = id,
+                    baseUpdatedAt = cached?.updatedAt
+                )
+            ) {
+                itemDao.deleteItem(id)
+            }
+            Result.success(Unit)
         } catch (e: Exception) {
             Result.failure(e)
         }
     }
     
+    /**
+     * Checkouts only take quantity away, so unlike updates they are replayed without an
+     * updatedAt check; the server still rejects taking more than is left.
+     */
     suspend fun checkoutItem(id: String, quantity: Int, reason: String? = null): Result<Item> {
         return try {
             val request = CheckoutItemRequest(quantity, reason)
-            val response = apiService.checkoutItem(id, request)
-            if (response.isSuccessful && response.body() != null) {
-                Result.success(response.body()!!)
-            } else {
-                Result.failure(Exception("Failed to checkout item: ${response.code()}"))
+            val cached = baseRowFor(id).getOrElse { return Result.failure(it) }
+                ?: return checkoutItemOnline(id, request)
+            if (quantity <= 0 || quantity > cached.quantity) {
+                return Result.failure(Exception("Cannot checkout more items than available"))
             }
+            
+            enqueueWrite(
+                ItemOutboxEntity(
+                    householdId = cached.householdId,
+                    type = ItemOutboxEntity.TYPE_CHECKOUT,
+                    itemId = id,
+                    payload = gson.toJson(request),
+                    baseUpdatedAt = cached.updatedAt
+                )
+            ) {
+                itemDao.upsertItems(listOf(cached.copy(quantity = cached.quantity - quantity)))
+            }
+            cachedItem(id) ?: Result.failure(Exception("Failed to checkout item"))
         } catch (e: Exception) {
             Result.failure(e)
         }
     }
     
+    private suspend fun checkoutItemOnline(id: String, request: CheckoutItemRequest): Result<Item> {
+        val response = apiService.checkoutItem(id, request)
+        return if (response.isSuccessful && response.body() != null) {
+            val item = response.body()!!
+            cacheItem(item)
+            Result.success(item)
+        } else {
+            Result.failure(Exception("Failed to checkout item: ${response.code()}"))
+        }
+    }
+    
+    /**
+     * The cached row an offline write is based on, or null if the item is not cached.
+     * Rows without an updatedAt (cached from the name-grouped list, whose quantity is the
+     * group's total) are reloaded first: a write based on them could not be checked for
+     * conflicts. Fails when such a row cannot be reloaded, e.g. offline.
+     */
+    private suspend fun baseRowFor(id: String): Result<ItemEntity?> {
+        val cached = itemDao.getItem(id)?.item ?: return Result.success(null)
+        if (cached.updatedAt != null || id.startsWith(LOCAL_ID_PREFIX)) {
+            return Result.success(cached)
+        }
+        
+        return try {
+            val response = apiService.getItem(id, currentLanguage)
+            val item = response.body()
+            if (!response.isSuccessful || item == null) {
+                return Result.failure(ItemWriteException(response.code(), "Failed to load item: ${response.code()}"))
+            }
+            cacheItem(item)
+            // The cache keeps the optimistic row of an item with queued writes
+            val reloaded = itemDao.getItem(id)?.item ?: return Result.success(null)
+            Result.success(if (reloaded.updatedAt != null) reloaded else reloaded.copy(updatedAt = item.updatedAt))
+        } catch (e: Exception) {
+            Result.failure(Exception("Item has to be reloaded before it can be changed offline", e))
+        }
+    }
+    
+    // ========== Outbox ==========
+    
+    private suspend fun enqueueWrite(entry: ItemOutboxEntity, applyToCache: suspend () -> Unit) {
+        database.withTransaction {
+            applyToCache()
+            itemOutboxDao.insert(entry)
+        }
+        ItemOutboxWorker.enqueue(context)
+    }
+    
+    fun observePendingWriteCount(): Flow<Int> = itemOutboxDao.observePendingCount()
+    
+    /**
+     * Writes the server refused: conflicts waiting for [overwriteConflict] or
+     * [discardWrite], and failures kept so the user can see what was not saved
+     */
+    fun observeUnsyncedWrites(): Flow<List<ItemOutboxEntity>> = itemOutboxDao.observeUnsynced()
+    
+    /**
+     * Sends a conflicting write again without the updatedAt check, overwriting the other change
+     */
+    suspend fun overwriteConflict(entryId: Long) {
+        itemOutboxDao.forcePending(entryId)
+        ItemOutboxWorker.enqueue(context)
+    }
+    
+    /**
+     * Drops a conflicting or failed write and puts the server's version of the item back
+     */
+    suspend fun discardWrite(entryId: Long) {
+        val entry = itemOutboxDao.get(entryId) ?: return
+        itemOutboxDao.delete(entryId)
+        restoreFromServer(entry.itemId)
+    }
+    
+    /**
+     * Replays the queued writes in order; consecutive creates and updates go through the
+     * batch endpoint. Returns false when a write could not be delivered for a transient
+     * reason (offline, 5xx, expired session) so the worker retries with backoff. Writes
+     * for an item with an unresolved conflict wait behind it; other items carry on.
+     */
+    suspend fun replayPendingWrites(): Boolean = replayMutex.withLock { replayInOrder() }
+    
+    private suspend fun replayInOrder(): Boolean {
+        while (true) {
+            val blocked = itemOutboxDao.getConflictedItemIds().toSet()
+            val pending = itemOutboxDao.getPending().filter { it.itemId !in blocked }
+            val head = pending.firstOrNull() ?: return true
+            
+            val run = if (head.isBatchable()) {
+                pending.takeWhile { it.isBatchable() }.take(MAX_BATCH_SIZE)
+            } else {
+                listOf(head)
+            }
+            val outcomes = if (head.isBatchable()) {
+                writeItems(run.map { it.toItemWrite() }).map { result ->
+                    result.fold(onSuccess = { ReplayOutcome.Sent(it) }, onFailure = { it.toReplayOutcome() })
+                }
+            } else {
+                listOf(replaySingle(head))
+            }
+            
+            var retry = false
+            run.zip(outcomes).forEach { (entry, outcome) ->
+                when (outcome) {
+                    is ReplayOutcome.Sent -> onWriteAccepted(entry, outcome.item)
+                    is ReplayOutcome.Conflict -> itemOutboxDao.setState(
+                        entry.id, ItemOutboxEntity.STATE_CONFLICT, "Item was changed by someone else"
+                    )
+                    is ReplayOutcome.Rejected -> onWriteRejected(entry, outcome.message)
+                    is ReplayOutcome.Retry -> {
+                        itemOutboxDao.recordAttempt(entry.id, outcome.message)
+                        retry = true
+                    }
+                }
+            }
+            if (retry) {
+                return false
+            }
+        }
+    }
+    
+    // Updates of items still waiting for their create need the server id first
+    private fun ItemOutboxEntity.isBatchable(): Boolean {
+        return type == ItemOutboxEntity.TYPE_CREATE ||
+            (type == ItemOutboxEntity.TYPE_UPDATE && !itemId.startsWith(LOCAL_ID_PREFIX))
+    }
+    
+    private fun ItemOutboxEntity.toItemWrite(): ItemWrite = when (type) {
+        ItemOutboxEntity.TYPE_CREATE -> ItemWrite.Create(
+            gson.fromJson(payload, CreateItemRequest::class.java),
+            idempotencyKey
+        )
+        else -> ItemWrite.Update(
+            itemId,
+            gson.fromJson(payload, UpdateItemRequest::class.java).copy(expectedUpdatedAt = baseUpdatedAt),
+            idempotencyKey
+        )
+    }
+    
+    private suspend fun replaySingle(entry: ItemOutboxEntity): ReplayOutcome {
+        if (entry.itemId.startsWith(LOCAL_ID_PREFIX)) {
+            return ReplayOutcome.Rejected("Item was never created")
+        }
+        return try {
+            when (entry.type) {
+                ItemOutboxEntity.TYPE_CHECKOUT -> {
+                    val request = gson.fromJson(entry.payload, CheckoutItemRequest::class.java)
+                    val response = apiService.checkoutItem(entry.itemId, request, entry.idempotencyKey)
+                    if (response.isSuccessful) {
+                        ReplayOutcome.Sent(response.body())
+                    } else {
+                        ItemWriteException(response.code(), "Failed to checkout item: ${response.code()}").toReplayOutcome()
+                    }
+                }
+                ItemOutboxEntity.TYPE_DELETE -> {
+                    val response = apiService.deleteItem(entry.itemId, entry.baseUpdatedAt, entry.idempotencyKey)
+                    // Already gone is as good as deleted
+                    if (response.isSuccessful || response.code() == 404) {
+                        ReplayOutcome.Sent(null)
+                    } else {
+                        ItemWriteException(response.code(), "Failed to delete item: ${response.code()}").toReplayOutcome()
+                    }
+                }
+                else -> writeItems(listOf(entry.toItemWrite())).single().fold(
+                    onSuccess = { ReplayOutcome.Sent(it) },
+                    onFailure = { it.toReplayOutcome() }
+                )
+            }
+        } catch (e: Exception) {
+            e.toReplayOutcome()
+        }
+    }
+    
+    private suspend fun onWriteAccepted(entry: ItemOutboxEntity, item: Item?) {
+        database.withTransaction {
+            itemOutboxDao.delete(entry.id)
+            if (entry.type == ItemOutboxEntity.TYPE_CREATE && item != null) {
+                // The local row already carries any later writes; it becomes the server item
+                itemOutboxDao.reassignItem(entry.itemId, item.id)
+                itemDao.deleteItem(item.id)
+                itemDao.renameItem(entry.itemId, item.id)
+            }
+            if (item != null) {
+                itemOutboxDao.rebase(item.id, item.updatedAt)
+            }
+        }
+        if (entry.type == ItemOutboxEntity.TYPE_CREATE && item != null) {
+            createdItemIds[entry.itemId] = item.id
+        }
+        // Skipped by the cache while later writes for the item are still queued
+        item?.let { cacheItem(it) }
+    }
+    
+    private suspend fun onWriteRejected(entry: ItemOutboxEntity, message: String) {
+        database.withTransaction {
+            itemOutboxDao.setState(entry.id, ItemOutboxEntity.STATE_FAILED, message)
+            if (entry.type == ItemOutboxEntity.TYPE_CREATE) {
+                // Nothing queued for an item that was never created can succeed
+                itemOutboxDao.failPendingForItem(entry.itemId, message)
+                itemDao.deleteItem(entry.itemId)
+            }
+        }
+        if (entry.type != ItemOutboxEntity.TYPE_CREATE) {
+            restoreFromServer(entry.itemId)
+        }
+    }
+    
+    // Replaces the optimistic copy with the server's; the next sync does the same if offline
+    private suspend fun restoreFromServer(id: String) {
+        if (id.startsWith(LOCAL_ID_PREFIX)) {
+            return
+        }
+        try {
+            val response = apiService.getItem(id, currentLanguage)
+            when {
+                response.isSuccessful -> response.body()?.let { cacheItem(it) }
+                response.code() == 404 -> itemDao.deleteItemsById(listOf(id))
+            }
+        } catch (e: Exception) {
+            // Keep the cached copy
+        }
+    }
+    
+    private fun Throwable.toReplayOutcome(): ReplayOutcome {
+        val status = (this as? ItemWriteException)?.status
+        val message = message ?: javaClass.simpleName
+        return when {
+            status == 409 -> ReplayOutcome.Conflict
+            status != null && status in 400..499 && status !in RETRYABLE_STATUSES -> ReplayOutcome.Rejected(message)
+            else -> ReplayOutcome.Retry(message)
+        }
+    }
+    
+    private sealed class ReplayOutcome {
+        data class Sent(val item: Item?) : ReplayOutcome()
+        object Conflict : ReplayOutcome()
+        data class Rejected(val message: String) : ReplayOutcome()
+        data class Retry(val message: String) : ReplayOutcome()
+    }
+    
     suspend fun search(query: String): Result<List<Item>> {
         return try {
             val response = apiService.search(query, currentLanguage)
@@ -123,4 +707,23 @@ class ItemRepository @Inject constructor(
             Result.failure(e)
         }
     }
+    
+    companion object {
+        private const val NO_HOUSEHOLD = ""
+        
+        // The server pages by this size too, so initial and later loads must match it
+        private const val PAGE_SIZE = 50
+        
+        // Page size of refreshItems, which reads the whole filtered list
+        private const val REFRESH_PAGE_SIZE = 200
+        
+        // Server-side limit of warehouse/items/batch
+        private const val MAX_BATCH_SIZE = 100
+        
+        // Id prefix of items created offline that the server has not assigned an id to yet
+        const val LOCAL_ID_PREFIX = "local-"
+        
+        // Client errors that may succeed later: expired session, timeout, rate limit
+        private val RETRYABLE_STATUSES = setOf(401, 408, 429)
+    }
 }
@@ -0,0 +1,110 @@
+package com.smartwarehouse.data.repository
+
+import com.smartwarehouse.data.remote.BatchItemOperation
+import com.smartwarehouse.data.remote.CreateItemRequest
+import com.smartwarehouse.data.remote.UpdateItemRequest
+import java.util.UUID
+
+/**
+ * A pending item write for [ItemRepository.writeItems]. Writes replayed from the outbox
+ * carry its [idempotencyKey], so the server applies them once however often they are sent.
+ */
+sealed class ItemWrite {
+    abstract val idempotencyKey: String?
+    
+    data class Create(
+        val request: CreateItemRequest,
+        override val idempotencyKey: String? = null
+    ) : ItemWrite()
+    
+    data class Update(
+        val id: String,
+        val request: UpdateItemRequest,
+        override val idempotencyKey: String? = null
+    ) : ItemWrite()
+}
+
+/**
+ * A failed write; [status] is the HTTP status of the request or row, null if unknown
+ */
+class ItemWriteException(val status: Int?, message: String) : Exception(message)
+
+/**
+ * A write to send plus the positions of the original writes it stands for
+ */
+internal data class CoalescedWrite(
+    val write: ItemWrite,
+    val sourceIndices: List<Int>
+)
+
+/**
+ * Folds every update of an item into its first update, later fields winning, so an item
+ * edited several times is sent once. Creates are kept as they are, in order.
+ *
+ * A folded update is keyed by all of its writes: resending the same writes is recognised
+ * by the server, while a fold that gained a write is a new request. Updates set fields to
+ * absolute values, so at worst such a request repeats them or fails the updatedAt check.
+ */
+internal fun List<ItemWrite>.coalesce(): List<CoalescedWrite> {
+    val coalesced = mutableListOf<CoalescedWrite>()
+    val updatePositions = mutableMapOf<String, Int>()
+
+    forEachIndexed { index, write ->
+        val position = (write as? ItemWrite.Update)?.let { updatePositions[it.id] }
+        if (write is ItemWrite.Update && position != null) {
+            val pending = coalesced[position]
+            val pendingUpdate = pending.write as ItemWrite.Update
+            val merged = pendingUpdate.request.mergedWith(write.request)
+            coalesced[position] = CoalescedWrite(
+                write = ItemWrite.Update(write.id, merged, combinedKey(pendingUpdate.idempotencyKey, write.idempotencyKey)),
+                sourceIndices = pending.sourceIndices + index
+            )
+        } else {
+            if (write is ItemWrite.Update) {
+                updatePositions[write.id] = coalesced.size
+            }
+            coalesced += CoalescedWrite(write, listOf(index))
+        }
+    }
+
+    return coalesced
+}
+
+internal fun ItemWrite.toOperation(householdId: String?): BatchItemOperation = when (this) {
+    is ItemWrite.Create -> BatchItemOperation(
+        type = BatchItemOperation.TYPE_CREATE,
+        // Queued creates keep the household they were made in
+        create = if (request.householdId != null) request else request.copy(householdId = householdId),
+        idempotencyKey = idempotencyKey
+    )
+    is ItemWrite.Update -> BatchItemOperation(
+        type = BatchItemOperation.TYPE_UPDATE,
+        id = id,
+        update = request,
+        idempotencyKey = idempotencyKey
+    )
+}
+
+// Keys stay a fixed length however many writes are folded; a write without a key makes
+// the fold unkeyed
+private fun combinedKey(first: String?, second: String?): String? {
+    if (first == null || second == null) {
+        return null
+    }
+    return UUID.nameUUIDFromBytes("$first|$second".toByteArray()).toString()
+}
+
+private fun UpdateItemRequest.mergedWith(later: UpdateItemRequest) = UpdateItemRequest(
+    name = later.name ?: name,
+    description = later.description ?: description,
+    quantity = later.quantity ?: quantity,
+    minQuantity = later.minQuantity ?: minQuantity,
+    category = later.category ?: category,
+    room = later.room ?: room,
+    cabinet = later.cabinet ?: cabinet,
+    barcode = later.barcode ?: barcode,
+    imageUrl = later.imageUrl ?: imageUrl,
+    tags = later.tags ?: tags,
+    // The first update saw the oldest server state, so it decides whether there is a conflict
+    expectedUpdatedAt = expectedUpdatedAt ?: later.expectedUpdatedAt
+)
@@ -0,0 +1,57 @@
+package com.smartwarehouse.data.sync
+
+import android.content.Context
+import androidx.hilt.work.HiltWorker
+import androidx.work.BackoffPolicy
+import androidx.work.Constraints
+import androidx.work.CoroutineWorker
+import androidx.work.ExistingWorkPolicy
+import androidx.work.NetworkType
+import androidx.work.OneTimeWorkRequestBuilder
+import androidx.work.WorkManager
+import androidx.work.WorkerParameters
+import com.smartwarehouse.data.repository.ItemRepository
+import dagger.assisted.Assisted
+import dagger.assisted.AssistedInject
+import java.util.concurrent.TimeUnit
+
+/**
+ * Replays the item outbox once the device is online, backing off exponentially while
+ * the server cannot be reached
+ */
+@HiltWorker
+class ItemOutboxWorker @AssistedInject constructor(
+    @Assisted context: Context,
+    @Assisted params: WorkerParameters,
+    private val itemRepository: ItemRepository
+) : CoroutineWorker(context, params) {
+    
+    override suspend fun doWork(): Result {
+        return if (itemRepository.replayPendingWrites()) Result.success() else Result.retry()
+    }
+    
+    companion object {
+        private const val WORK_NAME = "item_outbox_replay"
+        private const val BACKOFF_SECONDS = 30L
+        
+        /**
+         * Schedules a replay, appended behind one that is already running so its requests
+         * are not cancelled halfway. A write can still reach the server more than once
+         * (a response lost to a timeout, the process dying before the outbox row is
+         * removed); the outbox idempotency key makes the server apply it only once.
+         */
+        fun enqueue(context: Context) {
+            val request = OneTimeWorkRequestBuilder<ItemOutboxWorker>()
+                .setConstraints(
+                    Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .build()
+                )
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build()
+            
+            WorkManager.getInstance(context)
+                .enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, request)
+        }
+    }
+}
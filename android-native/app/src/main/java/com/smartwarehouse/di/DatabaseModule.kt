@@ -0,0 +1,39 @@
+package com.smartwarehouse.di
+
+import android.content.Context
+import androidx.room.Room
+import com.smartwarehouse.data.local.AppDatabase
+import com.smartwarehouse.data.local.ItemDao
+import com.smartwarehouse.data.local.ItemOutboxDao
+import dagger.Module
+import dagger.Provides
+import dagger.hilt.InstallIn
+import dagger.hilt.android.qualifiers.ApplicationContext
+import dagger.hilt.components.SingletonComponent
+import javax.inject.Singleton
+
+@Module
+@InstallIn(SingletonComponent::class)
+object DatabaseModule {
+
+    @Provides
+    @Singleton
+    fun provideAppDatabase(@ApplicationContext context: Context): AppDatabase {
+        // Versions before the outbox held nothing but server data and can simply be dropped;
+        // from version 3 on, unsynced writes live here and every schema change needs a migration
+        return Room.databaseBuilder(context, AppDatabase::class.java, AppDatabase.DATABASE_NAME)
+            .addMigrations(AppDatabase.MIGRATION_2_3, AppDatabase.MIGRATION_3_4)
+            .fallbackToDestructiveMigrationFrom(1)
+            .build()
+    }
+
+    @Provides
+    fun provideItemDao(database: AppDatabase): ItemDao {
+        return database.itemDao()
+    }
+
+    @Provides
+    fun provideItemOutboxDao(database: AppDatabase): ItemOutboxDao {
+        return database.itemOutboxDao()
+    }
+}
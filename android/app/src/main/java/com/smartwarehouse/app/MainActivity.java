@@ -18,5 +18,9 @@ public class MainActivity extends BridgeActivity {
         registerPlugin(WiFiPlugin.class);
         registerPlugin(NativeChatPlugin.class);
         super.onCreate(savedInstanceState);
+
+        // Vendor SDK setup runs in the background from the config cached at the last initialize.
+        // Tuya has no warm-up while its initializer is still a placeholder
+        MideaProvisioningPlugin.warmUp(this);
     }
 }
@@ -0,0 +1,121 @@
+package com.smartwarehouse.app.plugins;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import java.util.List;
+
+/**
+ * Local barcode -> item index, one row per (household, barcode). Item payloads are
+ * stored as the JSON the app already received from the warehouse API, so a re-scan of
+ * registered stock can resolve to the item without a network round trip.
+ */
+class BarcodeIndexStore extends SQLiteOpenHelper {
+    private static final String DATABASE_NAME = "barcode_index.db";
+    private static final int DATABASE_VERSION = 1;
+
+    private static final String TABLE = "barcode_index";
+    private static final String COL_HOUSEHOLD = "household_id";
+    private static final String COL_BARCODE = "barcode";
+    private static final String COL_ITEM_ID = "item_id";
+    private static final String COL_ITEM_JSON = "item_json";
+    private static final String COL_UPDATED_AT = "updated_at";
+
+    static class Entry {
+        final String barcode;
+        final String itemId;
+        final String itemJson;
+
+        Entry(String barcode, String itemId, String itemJson) {
+            this.barcode = barcode;
+            this.itemId = itemId;
+            this.itemJson = itemJson;
+        }
+    }
+
+    BarcodeIndexStore(Context context) {
+        super(context.getApplicationContext(), DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+            + COL_HOUSEHOLD + " TEXT NOT NULL, "
+            + COL_BARCODE + " TEXT NOT NULL, "
+            + COL_ITEM_ID + " TEXT NOT NULL, "
+            + COL_ITEM_JSON + " TEXT NOT NULL, "
+            + COL_UPDATED_AT + " INTEGER NOT NULL, "
+            + "PRIMARY KEY (" + COL_HOUSEHOLD + ", " + COL_BARCODE + "))");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // The index is a cache of server data; rebuilding it is always safe
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE);
+        onCreate(db);
+    }
+
+    /**
+     * Inserts or replaces entries for a household. With replace, existing rows for the
+     * household are dropped first so removed items stop resolving.
+     */
+    int upsert(String householdId, List<Entry> entries, boolean replace) {
+        SQLiteDatabase db = getWritableDatabase();
+        long now = System.currentTimeMillis();
+        int written = 0;
+        db.beginTransaction();
+        try {
+            if (replace) {
+                db.delete(TABLE, COL_HOUSEHOLD + " = ?", new String[]{householdId});
+            }
+            ContentValues values = new ContentValues();
+            for (Entry entry : entries) {
+                values.clear();
+                values.put(COL_HOUSEHOLD, householdId);
+                values.put(COL_BARCODE, entry.barcode);
+                values.put(COL_ITEM_ID, entry.itemId);
+                values.put(COL_ITEM_JSON, entry.itemJson);
+                values.put(COL_UPDATED_AT, now);
+                db.insertWithOnConflict(TABLE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+                written++;
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return written;
+    }
+
+    int removeItem(String householdId, String itemId) {
+        return getWritableDatabase().delete(
+            TABLE,
+            COL_HOUSEHOLD + " = ? AND " + COL_ITEM_ID + " = ?",
+            new String[]{householdId, itemId}
+        );
+    }
+
+    int clear(String householdId) {
+        if (householdId == null) {
+            return getWritableDatabase().delete(TABLE, null, null);
+        }
+        return getWritableDatabase().delete(TABLE, COL_HOUSEHOLD + " = ?", new String[]{householdId});
+    }
+
+    /**
+     * Item JSON for one code, via the (household, barcode) primary key
+     */
+    String lookup(String householdId, String barcode) {
+        try (Cursor cursor = getReadableDatabase().query(
+            TABLE,
+            new String[]{COL_ITEM_JSON},
+            COL_HOUSEHOLD + " = ? AND " + COL_BARCODE + " = ?",
+            new String[]{householdId, barcode},
+            null, null, null
+        )) {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        }
+    }
+}
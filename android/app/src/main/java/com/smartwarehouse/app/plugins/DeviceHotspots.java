@@ -0,0 +1,102 @@
+package com.smartwarehouse.app.plugins;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Recognizes the soft-AP hotspots IoT devices open while waiting to be provisioned, so
+ * only those cross the bridge during an install instead of every SSID in the building.
+ *
+ * Midea appliances advertise "midea_<type>_<id>" (e.g. midea_ac_0123), Tuya devices in
+ * AP mode "SmartLife-<id>", Shelly devices "shelly<model>-<mac>" and Espressif boards
+ * "ESP_<mac>" / "ESP32-..." / "ESP8266-...".
+ */
+class DeviceHotspots {
+    static final String MIDEA = "midea";
+    static final String TUYA = "tuya";
+    static final String SHELLY = "shelly";
+    static final String ESP = "esp";
+
+    private static final Map<String, Pattern> PATTERNS = new LinkedHashMap<>();
+
+    static {
+        PATTERNS.put(MIDEA, Pattern.compile("^midea_([0-9a-z]{2}_)?", Pattern.CASE_INSENSITIVE));
+        PATTERNS.put(TUYA, Pattern.compile("^SmartLife[-_]", Pattern.CASE_INSENSITIVE));
+        PATTERNS.put(SHELLY, Pattern.compile("^shelly[0-9a-z]*-", Pattern.CASE_INSENSITIVE));
+        PATTERNS.put(ESP, Pattern.compile("^ESP(32|8266)?[-_]", Pattern.CASE_INSENSITIVE));
+    }
+
+    private DeviceHotspots() {
+    }
+
+    static Set<String> vendors() {
+        return Collections.unmodifiableSet(PATTERNS.keySet());
+    }
+
+    static String vendorOf(String ssid) {
+        if (ssid == null || ssid.isEmpty()) {
+            return null;
+        }
+        for (Map.Entry<String, Pattern> entry : PATTERNS.entrySet()) {
+            if (entry.getValue().matcher(ssid).find()) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Copies of the networks whose SSID belongs to one of the vendors, tagged with
+     * "vendor" and ordered strongest signal first. The input list is not modified.
+     */
+    static JSONArray filter(JSONArray networks, Set<String> vendors) throws JSONException {
+        List<JSONObject> matches = new ArrayList<>();
+        for (int i = 0; i < networks.length(); i++) {
+            JSONObject network = networks.getJSONObject(i);
+            String vendor = vendorOf(network.optString("ssid"));
+            if (vendor != null && vendors.contains(vendor)) {
+                JSONObject hotspot = new JSONObject(network.toString());
+                hotspot.put("vendor", vendor);
+                matches.add(hotspot);
+            }
+        }
+
+        Collections.sort(matches, (a, b) -> Integer.compare(
+            b.optInt("signalStrength", Integer.MIN_VALUE),
+            a.optInt("signalStrength", Integer.MIN_VALUE)
+        ));
+
+        JSONArray sorted = new JSONArray();
+        for (JSONObject match : matches) {
+            sorted.put(match);
+        }
+        return sorted;
+    }
+
+    /**
+     * Groups filtered hotspots by vendor, keeping their signal order.
+     */
+    static JSONObject group(JSONArray hotspots) throws JSONException {
+        JSONObject groups = new JSONObject();
+        for (int i = 0; i < hotspots.length(); i++) {
+            JSONObject hotspot = hotspots.getJSONObject(i);
+            String vendor = hotspot.getString("vendor");
+            JSONArray group = groups.optJSONArray(vendor);
+            if (group == null) {
+                group = new JSONArray();
+                groups.put(vendor, group);
+            }
+            group.put(hotspot);
+        }
+        return groups;
+    }
+}
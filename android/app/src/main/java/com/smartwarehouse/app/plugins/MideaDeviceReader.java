@@ -0,0 +1,106 @@
+package com.smartwarehouse.app.plugins;
+
+import android.util.Log;
+
+import com.getcapacitor.JSObject;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads the provisioned device record from an MSDevice. Getter names differ between
+ * MSmartSDK builds, so for each field the first matching getter is resolved once per
+ * class and cached; later devices of the same class are read without any lookups or
+ * exceptions.
+ */
+class MideaDeviceReader {
+    private static final String TAG = "MideaDeviceReader";
+
+    // Output field -> candidate getters, most specific first
+    private static final Map<String, String[]> FIELDS = new LinkedHashMap<>();
+
+    static {
+        FIELDS.put("deviceId", new String[]{"getDeviceId", "getDeviceID", "getId", "getApplianceCode"});
+        FIELDS.put("deviceName", new String[]{"getDeviceName", "getName"});
+        FIELDS.put("deviceType", new String[]{"getDeviceType", "getType"});
+        FIELDS.put("deviceSubType", new String[]{"getDeviceSubType", "getSubType"});
+        FIELDS.put("deviceSn", new String[]{"getDeviceSN", "getDeviceSn", "getSn"});
+        FIELDS.put("deviceSsid", new String[]{"getDeviceSSID", "getDeviceSsid", "getSsid"});
+        FIELDS.put("mac", new String[]{"getDeviceMac", "getMac"});
+        FIELDS.put("modelNumber", new String[]{"getModelNumber", "getModel"});
+        FIELDS.put("protocolVersion", new String[]{"getProtocolVersion"});
+    }
+
+    private static final Map<Class<?>, Map<String, Method>> ACCESSORS = new ConcurrentHashMap<>();
+
+    private MideaDeviceReader() {
+    }
+
+    /**
+     * All resolvable fields of the device. deviceId falls back to toString() and
+     * deviceName / deviceType to "Unknown", as callers have always relied on those.
+     */
+    static JSObject read(Object device) {
+        JSObject record = new JSObject();
+        if (device == null) {
+            return record;
+        }
+
+        for (Map.Entry<String, Method> entry : accessorsFor(device.getClass()).entrySet()) {
+            try {
+                Object value = entry.getValue().invoke(device);
+                if (value != null) {
+                    record.put(entry.getKey(), String.valueOf(value));
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Failed to read " + entry.getKey() + " from " + device.getClass().getName(), e);
+            }
+        }
+
+        if (!record.has("deviceId")) {
+            record.put("deviceId", device.toString());
+        }
+        if (!record.has("deviceName")) {
+            record.put("deviceName", "Unknown");
+        }
+        if (!record.has("deviceType")) {
+            record.put("deviceType", "Unknown");
+        }
+        return record;
+    }
+
+    private static Map<String, Method> accessorsFor(Class<?> type) {
+        Map<String, Method> cached = ACCESSORS.get(type);
+        if (cached != null) {
+            return cached;
+        }
+
+        // One pass over the public methods instead of a getMethod() probe per candidate
+        Map<String, Method> getters = new HashMap<>();
+        for (Method method : type.getMethods()) {
+            if (method.getParameterTypes().length == 0
+                && method.getReturnType() != void.class
+                && !Modifier.isStatic(method.getModifiers())) {
+                getters.put(method.getName(), method);
+            }
+        }
+
+        Map<String, Method> resolved = new LinkedHashMap<>();
+        for (Map.Entry<String, String[]> field : FIELDS.entrySet()) {
+            for (String candidate : field.getValue()) {
+                Method getter = getters.get(candidate);
+                if (getter != null) {
+                    resolved.put(field.getKey(), getter);
+                    break;
+                }
+            }
+        }
+
+        ACCESSORS.put(type, resolved);
+        return resolved;
+    }
+}
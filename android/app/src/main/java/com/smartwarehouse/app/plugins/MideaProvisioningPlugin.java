@@ -1,5 +1,6 @@
 package com.smartwarehouse.app.plugins;
 
+import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
@@ -7,11 +8,19 @@ import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
 
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.os.Handler;
 import android.os.Looper;
 import android.text.TextUtils;
 import android.util.Log;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 // Midea MSmartSDK imports
 import com.midea.iot.msmart.MSConfig;
 import com.midea.iot.msmart.MSInterface;
@@ -28,11 +37,22 @@ import com.midea.iot.msmart.entity.MSErrorMessage;
 public class MideaProvisioningPlugin extends Plugin {
 
     private static final String TAG = "MideaProvisioningPlugin";
-    private boolean isInitialized = false;
-    private String currentToken = null;
-    private PluginCall currentProvisioningCall = null;
+    private static final int MAX_FINISHED_JOBS = 100;
+    // The SDK reports nothing when e.g. the phone never rejoins a network; give up on the
+    // device after this long so the rest of the queue still runs
+    private static final long JOB_TIMEOUT_MS = 4 * 60 * 1000;
+    private static final String EVENT_PROVISIONING_PROGRESS = "provisioningProgress";
+    private static final SdkInitializer SDK = new SdkInitializer("Midea");
+    private final MideaTokenStore tokenStore = MideaTokenStore.getInstance();
     private Handler mainHandler = new Handler(Looper.getMainLooper());
 
+    // Provisioning jobs by token, in submission order; main thread only
+    private final Map<String, ProvisioningJob> jobs = new LinkedHashMap<>();
+    private final ArrayDeque<ProvisioningJob> jobQueue = new ArrayDeque<>();
+    private ProvisioningJob activeJob = null;
+    private String lastToken = null;
+    private int jobSequence = 0;
+
     @PluginMethod
     public void initialize(PluginCall call) {
         String clientId = call.getString("clientId");
@@ -40,6 +60,8 @@ public class MideaProvisioningPlugin extends Plugin {
         String serverHost = call.getString("serverHost");
         String clientSrc = call.getString("clientSrc");
         String accessToken = call.getString("accessToken");
+        long expiresIn = call.getLong("expiresIn", 0L);
+        String tokenRefreshUrl = call.getString("tokenRefreshUrl");
 
         if (TextUtils.isEmpty(clientId) || TextUtils.isEmpty(clientSecret) || 
             TextUtils.isEmpty(serverHost) || TextUtils.isEmpty(accessToken)) {
@@ -47,60 +69,57 @@ public class MideaProvisioningPlugin extends Plugin {
             return;
         }
 
-        try {
-            Context context = getContext();
-            if (context == null) {
-                call.reject("Failed to get Android context");
-                return;
-            }
+        Context context = getContext();
+        if (context == null) {
+            call.reject("Failed to get Android context");
+            return;
+        }
 
-            // Initialize MSmartSDK
-            MSConfig config = new MSConfig();
-            config.serverHost = serverHost;
-            config.enableLog = true; // Enable SDK logging
-            config.clientId = clientId;
-            config.clientSecret = clientSecret;
+        MideaSdkConfig config = new MideaSdkConfig(clientId, clientSecret, serverHost, clientSrc);
+        Context appContext = context.getApplicationContext();
+        // Queued ahead of the setup on the same thread, so the Keystore stays off the main thread
+        SDK.runInBackground(() -> config.save(appContext));
 
-            // Initialize SDK in OVERSEAS_OEM mode
-            MSInterface.getInstance().initSDK(
-                context.getApplicationContext(),
-                MSInterface.WorkMode.OVERSEAS_OEM,
-                config
-            );
+        SDK.initialize(context, config.key(), config::initSdk, (alreadyInitialized, error) -> {
+            if (error != null) {
+                call.reject("Failed to initialize Midea SDK: " + error.getMessage());
+                return;
+            }
 
-            // Set access token
+            // The token changes per session even when the SDK itself is already set up
             MSInterface.getInstance().setAccessToken(String.format("Bearer %s", accessToken));
-
-            // Set token refresh delegate
-            MSInterface.getInstance().setTokenRefreshDelegate(new MSTokenRefresh() {
-                @Override
-                public boolean refreshToken() {
-                    // Token refresh should be handled by the app
-                    // For now, just return true if we have a token
-                    if (!TextUtils.isEmpty(accessToken)) {
-                        MSInterface.getInstance().setAccessToken(String.format("Bearer %s", accessToken));
-                        return true;
-                    }
-                    return false;
-                }
-            });
-
-            isInitialized = true;
+            tokenStore.configure(accessToken, expiresIn, tokenRefreshUrl, token ->
+                MSInterface.getInstance().setAccessToken(String.format("Bearer %s", token))
+            );
 
             JSObject data = new JSObject();
             data.put("initialized", true);
             data.put("native", true);
-            data.put("message", "Midea MSmartSDK initialized successfully");
+            data.put("alreadyInitialized", alreadyInitialized);
+            data.put("message", alreadyInitialized
+                ? "Midea MSmartSDK already initialized"
+                : "Midea MSmartSDK initialized successfully");
             call.resolve(data);
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to initialize Midea SDK", e);
-            call.reject("Failed to initialize Midea SDK: " + e.getMessage());
-        }
+        });
+    }
+
+    /**
+     * Starts SDK setup in the background from the config cached by the last initialize,
+     * so the first provisioning screen does not pay for it. No-op before the first login.
+     */
+    public static void warmUp(Context context) {
+        Context appContext = context.getApplicationContext();
+        SDK.runInBackground(() -> {
+            MideaSdkConfig config = MideaSdkConfig.load(appContext);
+            if (config != null) {
+                SDK.initialize(appContext, config.key(), config::initSdk, null);
+            }
+        });
     }
 
     @PluginMethod
     public void startProvisioning(PluginCall call) {
-        if (!isInitialized) {
+        if (!isReady()) {
             call.reject("Midea SDK not initialized. Call initialize() first.");
             return;
         }
@@ -112,224 +131,153 @@ public class MideaProvisioningPlugin extends Plugin {
         }
 
         String deviceSsid = call.getString("deviceSsid");
-        String routerSsid = call.getString("ssid");
-        String routerPassword = call.getString("password");
-        String routerSecurityParams = call.getString("routerSecurityParams");
-
-        if (TextUtils.isEmpty(deviceSsid) || TextUtils.isEmpty(routerSsid) || 
-            TextUtils.isEmpty(routerPassword)) {
+        RouterCredentials router = readRouterCredentials(call);
+        if (TextUtils.isEmpty(deviceSsid) || router == null) {
             call.reject("Device SSID, Router SSID, and password are required for AP mode");
             return;
         }
 
-        // Default security params if not provided
-        if (TextUtils.isEmpty(routerSecurityParams)) {
-            routerSecurityParams = "[WPA2-PSK-CCMP][RSN-PSK-CCMP][ESS]";
-        }
+        mainHandler.post(() -> {
+            ProvisioningJob job = enqueueJob(deviceSsid, router);
 
-        try {
-            currentProvisioningCall = call;
-            currentToken = "midea_ap_" + System.currentTimeMillis();
+            // Return immediately; the job runs as soon as the jobs ahead of it finish
+            JSObject result = new JSObject();
+            result.put("success", !"failed".equals(job.status));
+            result.put("token", job.token);
+            result.put("status", job.status);
+            result.put("message", "provisioning".equals(job.status)
+                ? "Midea AP mode provisioning started"
+                : "Midea AP mode provisioning queued");
+            result.put("mode", "ap");
+            call.resolve(result);
+        });
+    }
 
-            Context context = getContext();
-            if (context == null) {
-                call.reject("Failed to get Android context");
-                return;
-            }
+    /**
+     * Queues AP provisioning for several appliances sharing one router. The SDK can only
+     * configure one device at a time, so jobs run back-to-back on the already initialized
+     * SDK; each is tracked by its own token.
+     */
+    @PluginMethod
+    public void startBatchProvisioning(PluginCall call) {
+        if (!isReady()) {
+            call.reject("Midea SDK not initialized. Call initialize() first.");
+            return;
+        }
 
-            // Create AP config params
-            MSDeviceApConfigParams params = new MSDeviceApConfigParams(
-                context.getApplicationContext(),
-                deviceSsid,
-                routerSsid,
-                routerSecurityParams,
-                routerPassword
-            );
+        JSArray deviceSsids = call.getArray("deviceSsids");
+        RouterCredentials router = readRouterCredentials(call);
+        if (deviceSsids == null || deviceSsids.length() == 0 || router == null) {
+            call.reject("deviceSsids, Router SSID, and password are required for AP mode");
+            return;
+        }
 
-            // Start provisioning
-            MSDeviceConfigType configType = MSDeviceConfigType.MSDeviceConfigAP;
-            
-            // Stop any existing provisioning first
-            MSDeviceConfigManager.getInstance().stopConfigureDevice();
+        List<String> ssids = new ArrayList<>();
+        for (int i = 0; i < deviceSsids.length(); i++) {
+            String ssid = deviceSsids.optString(i, null);
+            if (!TextUtils.isEmpty(ssid)) {
+                ssids.add(ssid);
+            }
+        }
+        if (ssids.isEmpty()) {
+            call.reject("deviceSsids must contain at least one device SSID");
+            return;
+        }
 
-            // Start provisioning on main thread
-            mainHandler.post(() -> {
-                MSDeviceConfigManager.getInstance().startConfigureDevice(
-                    params,
-                    configType,
-                    new MSProgressCallback<MSDevice, MSDeviceConfigStep>() {
-                        @Override
-                        public void onError(MSErrorMessage errorMessage) {
-                            Log.e(TAG, "Midea provisioning error: " + errorMessage.getErrorMessage());
-                            
-                            if (currentProvisioningCall != null) {
-                                JSObject result = new JSObject();
-                                result.put("success", false);
-                                result.put("error", errorMessage.getErrorMessage());
-                                result.put("errorCode", errorMessage.getErrorCode());
-                                result.put("subErrorCode", errorMessage.getSubErrorCode());
-                                result.put("status", "failed");
-                                result.put("token", currentToken);
-                                currentProvisioningCall.reject(errorMessage.getErrorMessage(), result);
-                                currentProvisioningCall = null;
-                            }
-                        }
-
-                        @Override
-                        public void onComplete(MSDevice device) {
-                            // MSDevice may not have getDeviceId() method
-                            // Try to get device info using available methods
-                            String deviceId = null;
-                            String deviceName = null;
-                            String deviceType = null;
-                            
-                            try {
-                                // Try different possible method names
-                                if (device != null) {
-                                    // Try reflection to find the correct method
-                                    try {
-                                        java.lang.reflect.Method getIdMethod = device.getClass().getMethod("getDeviceId");
-                                        deviceId = (String) getIdMethod.invoke(device);
-                                    } catch (Exception e1) {
-                                        try {
-                                            java.lang.reflect.Method getIdMethod = device.getClass().getMethod("getDeviceID");
-                                            deviceId = (String) getIdMethod.invoke(device);
-                                        } catch (Exception e2) {
-                                            try {
-                                                java.lang.reflect.Method getIdMethod = device.getClass().getMethod("getId");
-                                                deviceId = (String) getIdMethod.invoke(device);
-                                            } catch (Exception e3) {
-                                                // Use toString as fallback
-                                                deviceId = device.toString();
-                                            }
-                                        }
-                                    }
-                                    
-                                    try {
-                                        java.lang.reflect.Method getNameMethod = device.getClass().getMethod("getDeviceName");
-                                        deviceName = (String) getNameMethod.invoke(device);
-                                    } catch (Exception e) {
-                                        deviceName = "Unknown";
-                                    }
-                                    
-                                    try {
-                                        java.lang.reflect.Method getTypeMethod = device.getClass().getMethod("getDeviceType");
-                                        deviceType = (String) getTypeMethod.invoke(device);
-                                    } catch (Exception e) {
-                                        deviceType = "Unknown";
-                                    }
-                                }
-                            } catch (Exception e) {
-                                Log.e(TAG, "Error getting device info", e);
-                            }
-                            
-                            Log.d(TAG, "Midea provisioning complete: " + deviceId);
-                            
-                            if (currentProvisioningCall != null) {
-                                JSObject result = new JSObject();
-                                result.put("success", true);
-                                if (deviceId != null) {
-                                    result.put("deviceId", deviceId);
-                                }
-                                if (deviceName != null) {
-                                    result.put("deviceName", deviceName);
-                                }
-                                result.put("status", "success");
-                                result.put("token", currentToken);
-                                
-                                // Add device info
-                                if (deviceId != null || deviceName != null || deviceType != null) {
-                                    JSObject deviceInfo = new JSObject();
-                                    if (deviceId != null) {
-                                        deviceInfo.put("deviceId", deviceId);
-                                    }
-                                    if (deviceName != null) {
-                                        deviceInfo.put("deviceName", deviceName);
-                                    }
-                                    if (deviceType != null) {
-                                        deviceInfo.put("deviceType", deviceType);
-                                    }
-                                    result.put("deviceInfo", deviceInfo);
-                                }
-                                
-                                currentProvisioningCall.resolve(result);
-                                currentProvisioningCall = null;
-                            }
-                        }
-
-                        @Override
-                        public void onProgressUpdate(MSDeviceConfigStep step) {
-                            Log.d(TAG, "Midea provisioning progress: " + step);
-                            
-                            // Optionally send progress updates
-                            if (currentProvisioningCall != null) {
-                                JSObject progress = new JSObject();
-                                progress.put("step", step != null ? step.toString() : "unknown");
-                                progress.put("status", "provisioning");
-                                progress.put("token", currentToken);
-                                
-                                // Note: Capacitor doesn't support streaming responses
-                                // Progress updates would need to be handled differently
-                            }
-                        }
-                    }
-                );
-            });
+        mainHandler.post(() -> {
+            JSArray submitted = new JSArray();
+            for (String ssid : ssids) {
+                ProvisioningJob job = enqueueJob(ssid, router);
+                submitted.put(job.toJSObject(queuePosition(job)));
+            }
 
-            // Return immediately with provisioning started status
             JSObject result = new JSObject();
             result.put("success", true);
-            result.put("token", currentToken);
-            result.put("status", "provisioning");
-            result.put("message", "Midea AP mode provisioning started");
+            result.put("jobs", submitted);
             result.put("mode", "ap");
             call.resolve(result);
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to start Midea provisioning", e);
-            call.reject("Failed to start Midea provisioning: " + e.getMessage());
-            currentProvisioningCall = null;
-        }
+        });
     }
 
     @PluginMethod
     public void getStatus(PluginCall call) {
-        String token = call.getString("token");
-        if (token == null) {
-            token = currentToken;
-        }
+        String requestedToken = call.getString("token");
+        mainHandler.post(() -> {
+            String token = requestedToken;
+            if (token == null) {
+                token = activeJob != null ? activeJob.token : lastToken;
+            }
 
-        if (token == null) {
-            call.reject("Provisioning token is required");
-            return;
-        }
+            if (token == null) {
+                call.reject("Provisioning token is required");
+                return;
+            }
 
-        JSObject result = new JSObject();
-        result.put("success", true);
-        result.put("status", currentProvisioningCall != null ? "provisioning" : "idle");
-        result.put("token", token);
-        call.resolve(result);
+            ProvisioningJob job = jobs.get(token);
+            if (job == null) {
+                JSObject result = new JSObject();
+                result.put("success", true);
+                result.put("status", "idle");
+                result.put("token", token);
+                call.resolve(result);
+                return;
+            }
+
+            JSObject result = job.toJSObject(queuePosition(job));
+            result.put("success", !"failed".equals(job.status));
+            call.resolve(result);
+        });
     }
 
     @PluginMethod
-    public void stopProvisioning(PluginCall call) {
-        try {
-            MSDeviceConfigManager.getInstance().stopConfigureDevice();
-
-            currentToken = null;
-
-            if (currentProvisioningCall != null) {
-                currentProvisioningCall.reject("Provisioning stopped by user");
-                currentProvisioningCall = null;
+    public void getProvisioningJobs(PluginCall call) {
+        mainHandler.post(() -> {
+            JSArray list = new JSArray();
+            for (ProvisioningJob job : jobs.values()) {
+                list.put(job.toJSObject(queuePosition(job)));
             }
 
             JSObject result = new JSObject();
-            result.put("success", true);
-            result.put("message", "Provisioning stopped");
+            result.put("jobs", list);
+            result.put("queued", jobQueue.size());
+            result.put("active", activeJob != null ? activeJob.token : null);
             call.resolve(result);
-        } catch (Exception e) {
-            Log.e(TAG, "Stop provisioning error", e);
-            call.reject("Failed to stop provisioning: " + e.getMessage());
-        }
+        });
+    }
+
+    /**
+     * Stops one job by token, or with no token the running job and everything queued.
+     */
+    @PluginMethod
+    public void stopProvisioning(PluginCall call) {
+        String token = call.getString("token");
+        mainHandler.post(() -> {
+            try {
+                if (token != null) {
+                    ProvisioningJob job = jobs.get(token);
+                    if (job == null || job.isFinished()) {
+                        call.reject("No running or queued provisioning job for token " + token);
+                        return;
+                    }
+                    cancelJob(job);
+                } else {
+                    for (ProvisioningJob queued : new ArrayList<>(jobQueue)) {
+                        cancelJob(queued);
+                    }
+                    if (activeJob != null) {
+                        cancelJob(activeJob);
+                    }
+                }
+
+                JSObject result = new JSObject();
+                result.put("success", true);
+                result.put("message", "Provisioning stopped");
+                call.resolve(result);
+            } catch (Exception e) {
+                Log.e(TAG, "Stop provisioning error", e);
+                call.reject("Failed to stop provisioning: " + e.getMessage());
+            }
+        });
     }
 
     @PluginMethod
@@ -346,5 +294,443 @@ public class MideaProvisioningPlugin extends Plugin {
             call.reject("Failed to resume provisioning: " + e.getMessage());
         }
     }
-}
 
+    // A warmed-up SDK still needs the access token from initialize
+    private boolean isReady() {
+        return SDK.isInitialized() && !TextUtils.isEmpty(tokenStore.getAccessToken());
+    }
+
+    private RouterCredentials readRouterCredentials(PluginCall call) {
+        String routerSsid = call.getString("ssid");
+        String routerPassword = call.getString("password");
+        String routerSecurityParams = call.getString("routerSecurityParams");
+
+        if (TextUtils.isEmpty(routerSsid) || TextUtils.isEmpty(routerPassword)) {
+            return null;
+        }
+
+        // Default security params if not provided
+        if (TextUtils.isEmpty(routerSecurityParams)) {
+            routerSecurityParams = "[WPA2-PSK-CCMP][RSN-PSK-CCMP][ESS]";
+        }
+        return new RouterCredentials(routerSsid, routerPassword, routerSecurityParams);
+    }
+
+    // Job queue state below is only touched on the main thread
+
+    private ProvisioningJob enqueueJob(String deviceSsid, RouterCredentials router) {
+        ProvisioningJob job = new ProvisioningJob(
+            "midea_ap_" + System.currentTimeMillis() + "_" + (++jobSequence),
+            deviceSsid,
+            router
+        );
+        jobs.put(job.token, job);
+        jobQueue.addLast(job);
+        lastToken = job.token;
+        pruneFinishedJobs();
+
+        if (activeJob == null) {
+            runNextJob();
+        }
+        return job;
+    }
+
+    private void runNextJob() {
+        if (activeJob != null) {
+            return;
+        }
+        ProvisioningJob job = jobQueue.pollFirst();
+        if (job == null) {
+            return;
+        }
+
+        activeJob = job;
+        job.status = "provisioning";
+        job.startedAt = System.currentTimeMillis();
+        publishProgress(job, null);
+
+        // Refresh first rather than letting the token expire halfway through a multi-minute flow
+        if (tokenStore.isExpiringSoon()) {
+            tokenStore.refreshAsync(() -> mainHandler.post(() -> configureDevice(job)));
+        } else {
+            configureDevice(job);
+        }
+    }
+
+    private void configureDevice(ProvisioningJob job) {
+        if (job != activeJob) {
+            // Cancelled while the token was refreshing
+            return;
+        }
+
+        Context context = getContext();
+        if (context == null) {
+            finishJob(job, "failed", null, "Failed to get Android context");
+            return;
+        }
+
+        try {
+            MSDeviceApConfigParams params = new MSDeviceApConfigParams(
+                context.getApplicationContext(),
+                job.deviceSsid,
+                job.router.ssid,
+                job.router.securityParams,
+                job.router.password
+            );
+
+            // Make sure nothing from a previous job is still running
+            MSDeviceConfigManager.getInstance().stopConfigureDevice();
+            MSDeviceConfigManager.getInstance().startConfigureDevice(
+                params,
+                MSDeviceConfigType.MSDeviceConfigAP,
+                new JobCallback(job)
+            );
+            job.timeout = () -> {
+                Log.w(TAG, "Midea provisioning timed out for " + job.deviceSsid);
+                MSDeviceConfigManager.getInstance().stopConfigureDevice();
+                finishJob(job, "failed", null, "timed out");
+            };
+            mainHandler.postDelayed(job.timeout, JOB_TIMEOUT_MS);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to start Midea provisioning for " + job.deviceSsid, e);
+            finishJob(job, "failed", null, "Failed to start Midea provisioning: " + e.getMessage());
+        }
+    }
+
+    private void cancelJob(ProvisioningJob job) {
+        if (job == activeJob) {
+            MSDeviceConfigManager.getInstance().stopConfigureDevice();
+        } else {
+            jobQueue.remove(job);
+        }
+        finishJob(job, "cancelled", null, "Provisioning stopped by user");
+    }
+
+    private void finishJob(ProvisioningJob job, String status, JSObject deviceResult, String error) {
+        if (job.isFinished()) {
+            return;
+        }
+        if (job.timeout != null) {
+            mainHandler.removeCallbacks(job.timeout);
+            job.timeout = null;
+        }
+        job.status = status;
+        job.finishedAt = System.currentTimeMillis();
+        job.device = deviceResult;
+        job.error = error;
+        StepRecord lastStep = job.closeCurrentStep(job.finishedAt);
+        publishProgress(job, lastStep);
+
+        if (job == activeJob) {
+            activeJob = null;
+            // Let the SDK unwind its callback before the next device starts
+            mainHandler.post(this::runNextJob);
+        }
+    }
+
+    /**
+     * Emits provisioningProgress for a job: every SDK step, plus the start and the final
+     * status. completedStep is the step that just ended, with its duration.
+     */
+    private void publishProgress(ProvisioningJob job, StepRecord completedStep) {
+        long now = System.currentTimeMillis();
+        JSObject event = new JSObject();
+        event.put("token", job.token);
+        event.put("deviceSsid", job.deviceSsid);
+        event.put("status", job.status);
+        if (job.step != null) {
+            event.put("step", job.step);
+        }
+        event.put("timestamp", now);
+        event.put("elapsedMs", job.startedAt > 0 ? now - job.startedAt : 0);
+        if (completedStep != null) {
+            event.put("previousStep", completedStep.step);
+            event.put("previousStepMs", completedStep.durationMs);
+        }
+        if (job.isFinished()) {
+            event.put("timeline", job.timelineToJSArray());
+            if (job.error != null) {
+                event.put("error", job.error);
+            }
+        }
+        notifyListeners(EVENT_PROVISIONING_PROGRESS, event);
+    }
+
+    private int queuePosition(ProvisioningJob job) {
+        if (job == activeJob) {
+            return 0;
+        }
+        int position = 1;
+        for (ProvisioningJob queued : jobQueue) {
+            if (queued == job) {
+                return position;
+            }
+            position++;
+        }
+        return -1;
+    }
+
+    private void pruneFinishedJobs() {
+        int finished = 0;
+        for (ProvisioningJob job : jobs.values()) {
+            if (job.isFinished()) {
+                finished++;
+            }
+        }
+        Iterator<ProvisioningJob> iterator = jobs.values().iterator();
+        while (finished > MAX_FINISHED_JOBS && iterator.hasNext()) {
+            if (iterator.next().isFinished()) {
+                iterator.remove();
+                finished--;
+            }
+        }
+    }
+
+    private class JobCallback implements MSProgressCallback<MSDevice, MSDeviceConfigStep> {
+        private final ProvisioningJob job;
+
+        JobCallback(ProvisioningJob job) {
+            this.job = job;
+        }
+
+        @Override
+        public void onError(MSErrorMessage errorMessage) {
+            Log.e(TAG, "Midea provisioning error for " + job.deviceSsid + ": " + errorMessage.getErrorMessage());
+            mainHandler.post(() -> {
+                job.errorCode = errorMessage.getErrorCode();
+                job.subErrorCode = errorMessage.getSubErrorCode();
+                finishJob(job, "failed", null, errorMessage.getErrorMessage());
+            });
+        }
+
+        @Override
+        public void onComplete(MSDevice device) {
+            JSObject deviceInfo = MideaDeviceReader.read(device);
+            Log.d(TAG, "Midea provisioning complete: " + deviceInfo.getString("deviceId"));
+            mainHandler.post(() -> finishJob(job, "success", deviceInfo, null));
+        }
+
+        @Override
+        public void onProgressUpdate(MSDeviceConfigStep step) {
+            Log.d(TAG, "Midea provisioning progress (" + job.token + "): " + step);
+            long at = System.currentTimeMillis();
+            mainHandler.post(() -> {
+                if (job.isFinished()) {
+                    return;
+                }
+                StepRecord completed = job.beginStep(step != null ? step.toString() : "unknown", at);
+                publishProgress(job, completed);
+            });
+        }
+    }
+
+    /**
+     * SDK credentials, cached in EncryptedSharedPreferences for warmUp. The access token
+     * is not cached; it is short-lived and always comes with initialize.
+     */
+    private static class MideaSdkConfig {
+        private static final String TAG = "MideaSdkConfig";
+        private static final String PREFS = "midea_sdk_config_secure";
+        // Plaintext file of earlier versions
+        private static final String LEGACY_PREFS = "midea_sdk_config";
+
+        final String clientId;
+        final String clientSecret;
+        final String serverHost;
+        final String clientSrc;
+
+        MideaSdkConfig(String clientId, String clientSecret, String serverHost, String clientSrc) {
+            this.clientId = clientId;
+            this.clientSecret = clientSecret;
+            this.serverHost = serverHost;
+            this.clientSrc = clientSrc;
+        }
+
+        String key() {
+            return clientId + "|" + clientSecret + "|" + serverHost;
+        }
+
+        void initSdk(Context appContext) {
+            // Initialize MSmartSDK
+            MSConfig config = new MSConfig();
+            config.serverHost = serverHost;
+            config.enableLog = true; // Enable SDK logging
+            config.clientId = clientId;
+            config.clientSecret = clientSecret;
+
+            // Initialize SDK in OVERSEAS_OEM mode
+            MSInterface.getInstance().initSDK(appContext, MSInterface.WorkMode.OVERSEAS_OEM, config);
+
+            // The SDK calls this off the main thread and waits for the answer
+            MSInterface.getInstance().setTokenRefreshDelegate(new MSTokenRefresh() {
+                @Override
+                public boolean refreshToken() {
+                    return MideaTokenStore.getInstance().refresh();
+                }
+            });
+        }
+
+        // Both run on the SdkInitializer thread
+        void save(Context context) {
+            try {
+                SecurePrefs.open(context, PREFS).edit()
+                    .putString("clientId", clientId)
+                    .putString("clientSecret", clientSecret)
+                    .putString("serverHost", serverHost)
+                    .putString("clientSrc", clientSrc)
+                    .apply();
+            } catch (Exception e) {
+                // Only warmUp is lost; initialize still works with the credentials it is given
+                Log.w(TAG, "Failed to cache SDK config", e);
+            }
+            SecurePrefs.clearPlaintext(context, LEGACY_PREFS);
+        }
+
+        static MideaSdkConfig load(Context context) {
+            SecurePrefs.clearPlaintext(context, LEGACY_PREFS);
+            SharedPreferences prefs;
+            try {
+                prefs = SecurePrefs.open(context, PREFS);
+            } catch (Exception e) {
+                Log.w(TAG, "Failed to read cached SDK config", e);
+                return null;
+            }
+            String clientId = prefs.getString("clientId", null);
+            String clientSecret = prefs.getString("clientSecret", null);
+            String serverHost = prefs.getString("serverHost", null);
+            if (TextUtils.isEmpty(clientId) || TextUtils.isEmpty(clientSecret) || TextUtils.isEmpty(serverHost)) {
+                return null;
+            }
+            return new MideaSdkConfig(clientId, clientSecret, serverHost, prefs.getString("clientSrc", null));
+        }
+    }
+
+    private static class RouterCredentials {
+        final String ssid;
+        final String password;
+        final String securityParams;
+
+        RouterCredentials(String ssid, String password, String securityParams) {
+            this.ssid = ssid;
+            this.password = password;
+            this.securityParams = securityParams;
+        }
+    }
+
+    private static class StepRecord {
+        final String step;
+        final long startedAt;
+        long durationMs = -1;
+
+        StepRecord(String step, long startedAt) {
+            this.step = step;
+            this.startedAt = startedAt;
+        }
+    }
+
+    private static class ProvisioningJob {
+        final String token;
+        final String deviceSsid;
+        final RouterCredentials router;
+        final long queuedAt = System.currentTimeMillis();
+        String status = "queued";
+        String step;
+        long startedAt;
+        long finishedAt;
+        JSObject device;
+        String error;
+        Object errorCode;
+        Object subErrorCode;
+        // Watchdog posted while the SDK is configuring this device
+        Runnable timeout;
+        // Every SDK step with its duration, e.g. to see whether AP connect or cloud bind is slow
+        final List<StepRecord> timeline = new ArrayList<>();
+
+        ProvisioningJob(String token, String deviceSsid, RouterCredentials router) {
+            this.token = token;
+            this.deviceSsid = deviceSsid;
+            this.router = router;
+        }
+
+        // Starts a step and returns the one it ends, if any
+        StepRecord beginStep(String name, long at) {
+            StepRecord completed = closeCurrentStep(at);
+            step = name;
+            timeline.add(new StepRecord(name, at));
+            return completed;
+        }
+
+        StepRecord closeCurrentStep(long at) {
+            if (timeline.isEmpty()) {
+                return null;
+            }
+            StepRecord current = timeline.get(timeline.size() - 1);
+            if (current.durationMs >= 0) {
+                return null;
+            }
+            current.durationMs = at - current.startedAt;
+            return current;
+        }
+
+        JSArray timelineToJSArray() {
+            JSArray list = new JSArray();
+            for (StepRecord record : timeline) {
+                JSObject entry = new JSObject();
+                entry.put("step", record.step);
+                entry.put("startedAt", record.startedAt);
+                entry.put("offsetMs", startedAt > 0 ? record.startedAt - startedAt : 0);
+                if (record.durationMs >= 0) {
+                    entry.put("durationMs", record.durationMs);
+                }
+                list.put(entry);
+            }
+            return list;
+        }
+
+        boolean isFinished() {
+            return "success".equals(status) || "failed".equals(status) || "cancelled".equals(status);
+        }
+
+        JSObject toJSObject(int queuePosition) {
+            JSObject result = new JSObject();
+            result.put("token", token);
+            result.put("deviceSsid", deviceSsid);
+            result.put("status", status);
+            result.put("queuedAt", queuedAt);
+            if (queuePosition >= 0) {
+                result.put("queuePosition", queuePosition);
+            }
+            if (step != null) {
+                result.put("step", step);
+            }
+            if (startedAt > 0) {
+                result.put("startedAt", startedAt);
+            }
+            if (finishedAt > 0) {
+                result.put("finishedAt", finishedAt);
+            }
+            if (!timeline.isEmpty()) {
+                result.put("timeline", timelineToJSArray());
+            }
+            if (device != null) {
+                result.put("deviceInfo", device);
+                if (device.has("deviceId")) {
+                    result.put("deviceId", device.getString("deviceId"));
+                }
+                if (device.has("deviceName")) {
+                    result.put("deviceName", device.getString("deviceName"));
+                }
+            }
+            if (error != null) {
+                result.put("error", error);
+            }
+            if (errorCode != null) {
+                result.put("errorCode", errorCode);
+            }
+            if (subErrorCode != null) {
+                result.put("subErrorCode", subErrorCode);
+            }
+            return result;
+        }
+    }
+}
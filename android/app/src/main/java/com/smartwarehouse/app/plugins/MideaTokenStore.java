@@ -0,0 +1,224 @@
+package com.smartwarehouse.app.plugins;
+
+import android.text.TextUtils;
+import android.util.Log;
+import android.webkit.CookieManager;
+
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide Midea access token. Refreshes go to the app backend
+ * (POST /api/mqtt/midea/token, authenticated with the WebView session cookie) and are
+ * single-flight: callers arriving while a refresh is running wait for it and share its
+ * outcome, so a burst of expired SDK requests triggers exactly one HTTP call.
+ */
+class MideaTokenStore {
+    private static final String TAG = "MideaTokenStore";
+    private static final int HTTP_TIMEOUT_MS = 10000;
+    private static final long REFRESH_WAIT_MS = 15000;
+    // A token refreshed this recently is assumed valid; the SDK may report several failures from before it
+    private static final long RECENT_REFRESH_MS = 10000;
+    private static final long EXPIRY_MARGIN_MS = 60000;
+
+    interface Listener {
+        void onTokenChanged(String accessToken);
+    }
+
+    private static final MideaTokenStore INSTANCE = new MideaTokenStore();
+
+    // One thread for the single in-flight fetch. A new fetch can only be queued while the
+    // previous one runs its callbacks, so one queue slot is enough; the thread exits when idle.
+    private final ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1));
+    private String accessToken;
+    private long expiresAtMs;
+    private long refreshedAtMs;
+    private String refreshUrl;
+    private Listener listener;
+    // Cleared by the fetch itself when it ends, so a caller that stopped waiting never
+    // leaves a finished (possibly failed) refresh behind for the next one
+    private Future<Boolean> inFlight;
+    private final List<Runnable> onRefreshDone = new ArrayList<>();
+
+    static MideaTokenStore getInstance() {
+        return INSTANCE;
+    }
+
+    private MideaTokenStore() {
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * expiresInSeconds of 0 means unknown; the token is then only refreshed when the SDK
+     * reports it as rejected.
+     */
+    synchronized void configure(String token, long expiresInSeconds, String tokenRefreshUrl, Listener tokenListener) {
+        accessToken = token;
+        expiresAtMs = expiresInSeconds > 0 ? System.currentTimeMillis() + expiresInSeconds * 1000 : 0;
+        refreshUrl = tokenRefreshUrl;
+        listener = tokenListener;
+    }
+
+    synchronized String getAccessToken() {
+        return accessToken;
+    }
+
+    synchronized boolean isExpiringSoon() {
+        return expiresAtMs > 0 && System.currentTimeMillis() > expiresAtMs - EXPIRY_MARGIN_MS;
+    }
+
+    /**
+     * Blocks until a refreshed token is available. Meant for the SDK's MSTokenRefresh
+     * callback, which expects a synchronous answer; never call on the main thread.
+     */
+    boolean refresh() {
+        Future<Boolean> future;
+        synchronized (this) {
+            if (refreshedRecently()) {
+                return true;
+            }
+            if (TextUtils.isEmpty(refreshUrl)) {
+                Log.w(TAG, "No token refresh URL configured");
+                return false;
+            }
+            future = startRefresh();
+        }
+
+        try {
+            return future.get(REFRESH_WAIT_MS, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            Log.e(TAG, "Token refresh did not complete", e);
+            return false;
+        }
+    }
+
+    /**
+     * Non-blocking refresh for callers on the main thread; joins a refresh already in flight.
+     * onDone runs on the fetch thread once it ends, or right away when no refresh is needed.
+     */
+    void refreshAsync(Runnable onDone) {
+        synchronized (this) {
+            if (!refreshedRecently() && !TextUtils.isEmpty(refreshUrl)) {
+                startRefresh();
+                onRefreshDone.add(onDone);
+                return;
+            }
+        }
+        onDone.run();
+    }
+
+    // Caller holds the lock
+    private boolean refreshedRecently() {
+        return System.currentTimeMillis() - refreshedAtMs < RECENT_REFRESH_MS && !TextUtils.isEmpty(accessToken);
+    }
+
+    // Caller holds the lock; fetchToken clears inFlight under it, after this returns
+    private Future<Boolean> startRefresh() {
+        if (inFlight == null) {
+            inFlight = executor.submit(this::fetchToken);
+        }
+        return inFlight;
+    }
+
+    private boolean fetchToken() {
+        try {
+            return requestToken();
+        } finally {
+            List<Runnable> callbacks;
+            synchronized (this) {
+                inFlight = null;
+                callbacks = new ArrayList<>(onRefreshDone);
+                onRefreshDone.clear();
+            }
+            for (Runnable callback : callbacks) {
+                callback.run();
+            }
+        }
+    }
+
+    private boolean requestToken() {
+        String url;
+        synchronized (this) {
+            url = refreshUrl;
+        }
+
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setRequestMethod("POST");
+            connection.setConnectTimeout(HTTP_TIMEOUT_MS);
+            connection.setReadTimeout(HTTP_TIMEOUT_MS);
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            connection.setRequestProperty("Accept", "application/json");
+
+            // The backend authenticates with the same session as the WebView
+            String cookies = CookieManager.getInstance().getCookie(url);
+            if (cookies != null) {
+                connection.setRequestProperty("Cookie", cookies);
+            }
+
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write("{}".getBytes("UTF-8"));
+            }
+
+            int status = connection.getResponseCode();
+            if (status < 200 || status >= 300) {
+                Log.e(TAG, "Token refresh failed with HTTP " + status);
+                return false;
+            }
+
+            JSONObject body = new JSONObject(readAll(connection.getInputStream()));
+            String token = body.optString("accessToken", "");
+            if (token.isEmpty()) {
+                Log.e(TAG, "Token refresh response had no accessToken");
+                return false;
+            }
+
+            Listener tokenListener;
+            synchronized (this) {
+                accessToken = token;
+                long expiresIn = body.optLong("expiresIn", 0);
+                expiresAtMs = expiresIn > 0 ? System.currentTimeMillis() + expiresIn * 1000 : 0;
+                refreshedAtMs = System.currentTimeMillis();
+                tokenListener = listener;
+            }
+            if (tokenListener != null) {
+                tokenListener.onTokenChanged(token);
+            }
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "Token refresh failed", e);
+            return false;
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toString("UTF-8");
+        }
+    }
+}
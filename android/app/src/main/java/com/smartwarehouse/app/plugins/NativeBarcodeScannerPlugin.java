@@ -3,8 +3,23 @@ package com.smartwarehouse.app.plugins;
 import android.Manifest;
 import android.content.Context;
 import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Point;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Base64;
 import android.util.Log;
+import android.util.Rational;
+import android.util.Size;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -15,13 +30,19 @@ import androidx.annotation.NonNull;
 import androidx.camera.core.Camera;
 import androidx.camera.core.CameraSelector;
 import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageProxy;
 import androidx.camera.core.Preview;
+import androidx.camera.core.UseCaseGroup;
+import androidx.camera.core.ViewPort;
+import androidx.camera.core.resolutionselector.ResolutionSelector;
+import androidx.camera.core.resolutionselector.ResolutionStrategy;
 import androidx.camera.lifecycle.ProcessCameraProvider;
 import androidx.camera.view.PreviewView;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import androidx.fragment.app.FragmentActivity;
 
+import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
@@ -32,10 +53,33 @@ import com.google.mlkit.vision.barcode.BarcodeScannerOptions;
 import com.google.mlkit.vision.barcode.BarcodeScanning;
 import com.google.mlkit.vision.barcode.common.Barcode;
 import com.google.mlkit.vision.common.InputImage;
+import com.google.android.gms.tasks.Tasks;
+import com.smartwarehouse.scanner.BarcodeFormats;
+import com.smartwarehouse.scanner.FrameCrop;
 
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.google.common.util.concurrent.ListenableFuture;
 
@@ -43,40 +87,175 @@ import com.google.common.util.concurrent.ListenableFuture;
 public class NativeBarcodeScannerPlugin extends Plugin {
     private static final String TAG = "NativeBarcodeScanner";
     private static final int CAMERA_PERMISSION_REQUEST_CODE = 1001;
+    private static final long DEFAULT_DEDUPE_WINDOW_MS = 2000;
+    private static final int MAX_CACHED_SCANNERS = 4;
+    private static final long DEFAULT_DECODE_TIMEOUT_MS = 1500;
+    // Timed-out decodes keep running inside ML Kit; no new frame is admitted past this many
+    private static final int MAX_ABANDONED_DECODES = 1;
+    private static final int MAX_STILL_IMAGE_THREADS = 4;
+    // Each queued still-image job drains a whole decodeImages call, so a few slots are plenty
+    private static final int STILL_IMAGE_QUEUE_CAPACITY = 8;
+    private static final int MAX_STILL_IMAGE_DIMENSION = 2048;
     
     private ProcessCameraProvider cameraProvider;
     private Camera camera;
     private PreviewView previewView;
     private FrameLayout scannerContainer;
+    private Button closeButton;
+    private ScanWindowOverlay scanWindowOverlay;
+    private ImageAnalysis imageAnalysis;
+    private Size boundResolution;
+    // When set, stopping a scan pauses analysis instead of unbinding the camera
+    private boolean keepCameraBound = false;
     private BarcodeScanner barcodeScanner;
+    // ML Kit clients keyed by format bitmask, so narrowed detectors are reused across scans
+    private final Map<Integer, BarcodeScanner> scannerClients =
+        new LinkedHashMap<Integer, BarcodeScanner>(MAX_CACHED_SCANNERS, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, BarcodeScanner> eldest) {
+                if (size() > MAX_CACHED_SCANNERS && eldest.getValue() != barcodeScanner) {
+                    // A client still decoding images is closed when its last user releases it
+                    if (!clientUses.containsKey(eldest.getValue())) {
+                        eldest.getValue().close();
+                    }
+                    return true;
+                }
+                return false;
+            }
+        };
+    // Clients held by running decodeImages calls, with their number of users; guarded by scannerClients
+    private final Map<BarcodeScanner, Integer> clientUses = new HashMap<>();
     private PluginCall currentCall;
-    private boolean isScanning = false;
+    private volatile boolean isScanning = false;
     private ExecutorService executorService;
+    private ExecutorService stillImageExecutor;
+
+    private ScanMode scanMode = ScanMode.SINGLE;
+
+    // Batch scan state: the camera stays bound and every new code is streamed to JS
+    private long dedupeWindowMs = DEFAULT_DEDUPE_WINDOW_MS;
+    private final Map<String, BatchEntry> batchEntries = new LinkedHashMap<>();
+
+    // E-invoice scan state: left/right QR and barcode are paired natively by invoice number
+    private final TaiwanEInvoiceCollector eInvoiceCollector = new TaiwanEInvoiceCollector();
+    private boolean eInvoiceContinuous = false;
+
+    // Local barcode -> item index; codes of the live scan are looked up in its household,
+    // still images in the household passed to decodeImages
+    private BarcodeIndexStore barcodeIndex;
+    private volatile String indexHouseholdId;
+
+    // Shelf capture: resolve with every code in a frame once at least this many are visible
+    private int shelfMinBarcodes = 1;
+
+    // Optional analysis tuning: target resolution and a normalized (upright) scan window to decode
+    private Size analysisResolution;
+    private RectF scanWindow;
+
+    // Decode gating: at most one ML Kit call in flight, optionally rate limited
+    private final AtomicBoolean decodeInFlight = new AtomicBoolean(false);
+    // Decodes given up on by the timeout or a new scan whose ML Kit task has not finished
+    private final AtomicInteger abandonedDecodes = new AtomicInteger();
+    private final DecodeStats decodeStats = new DecodeStats();
+    private volatile long decodeStartedAt = 0;
+    // Bumped by the analyzer thread and when a decode is abandoned from the bridge thread
+    private final AtomicLong decodeGeneration = new AtomicLong();
+    private volatile long minDecodeIntervalMs = 0;
+    private volatile long decodeTimeoutMs = DEFAULT_DECODE_TIMEOUT_MS;
+
+    // Pipeline instrumentation; scan start is the reference for first-frame and time-to-result
+    private final ScannerTimings timings = new ScannerTimings();
+    private volatile long scanStartedAtNanos = 0;
+    private volatile boolean awaitingFirstFrame = false;
+    private volatile boolean awaitingFirstResult = false;
 
     @Override
     public void load() {
         super.load();
+        // CameraX hands the analyzer one frame at a time, so a single thread is all it uses;
+        // decode results are handled on the same thread
         executorService = Executors.newSingleThreadExecutor();
+        int threads = Math.max(1, Math.min(MAX_STILL_IMAGE_THREADS, Runtime.getRuntime().availableProcessors() - 1));
+
+        // Still images get their own pool, so an import never competes with the camera or
+        // spills onto the bridge thread; a full queue rejects the call instead
+        stillImageExecutor = new ThreadPoolExecutor(
+            threads,
+            threads,
+            30,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(STILL_IMAGE_QUEUE_CAPACITY),
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+        ((ThreadPoolExecutor) stillImageExecutor).allowCoreThreadTimeOut(true);
+
+        barcodeIndex = new BarcodeIndexStore(getContext());
         
-        // Initialize ML Kit Barcode Scanner
-            BarcodeScannerOptions options = new BarcodeScannerOptions.Builder()
-            .setBarcodeFormats(
-                Barcode.FORMAT_QR_CODE,
-                Barcode.FORMAT_EAN_13,
-                Barcode.FORMAT_EAN_8,
-                Barcode.FORMAT_UPC_A,
-                Barcode.FORMAT_UPC_E,
-                Barcode.FORMAT_CODE_39,
-                Barcode.FORMAT_CODE_93,
-                Barcode.FORMAT_CODE_128,
-                Barcode.FORMAT_PDF417,
-                Barcode.FORMAT_AZTEC,
-                Barcode.FORMAT_DATA_MATRIX,
-                Barcode.FORMAT_CODABAR,
-                Barcode.FORMAT_ITF
-            )
-            .build();
-        barcodeScanner = BarcodeScanning.getClient(options);
+        // Initialize ML Kit Barcode Scanner with every supported format
+        barcodeScanner = getScannerClient(BarcodeFormats.ALL_SUPPORTED);
+    }
+
+    private BarcodeScanner getScannerClient(int formats) {
+        synchronized (scannerClients) {
+            BarcodeScanner client = scannerClients.get(formats);
+            if (client == null) {
+                // ML Kit ORs the format flags, so the combined bitmask can be passed directly
+                BarcodeScannerOptions options = new BarcodeScannerOptions.Builder()
+                    .setBarcodeFormats(formats)
+                    .build();
+                client = BarcodeScanning.getClient(options);
+                scannerClients.put(formats, client);
+            }
+            return client;
+        }
+    }
+
+    /**
+     * Like getScannerClient, but keeps the client open until releaseScannerClient even if
+     * it is evicted from the cache in the meantime.
+     */
+    private BarcodeScanner acquireScannerClient(int formats) {
+        synchronized (scannerClients) {
+            BarcodeScanner client = getScannerClient(formats);
+            Integer uses = clientUses.get(client);
+            clientUses.put(client, uses == null ? 1 : uses + 1);
+            return client;
+        }
+    }
+
+    private void releaseScannerClient(BarcodeScanner client) {
+        synchronized (scannerClients) {
+            Integer uses = clientUses.get(client);
+            if (uses != null && uses > 1) {
+                clientUses.put(client, uses - 1);
+                return;
+            }
+            clientUses.remove(client);
+            if (!scannerClients.containsValue(client) && client != barcodeScanner) {
+                client.close();
+            }
+        }
+    }
+
+    /**
+     * Resolves the optional "formats" array of a call into an ML Kit format bitmask.
+     * Returns defaultFormats when no formats are requested.
+     */
+    private int parseRequestedFormats(PluginCall call, int defaultFormats) throws JSONException {
+        JSArray formats = call.getArray("formats");
+        if (formats == null || formats.length() == 0) {
+            return defaultFormats;
+        }
+
+        int mask = 0;
+        for (String name : formats.<String>toList()) {
+            int format = BarcodeFormats.parse(name);
+            if (format == Barcode.FORMAT_UNKNOWN) {
+                throw new IllegalArgumentException("Unsupported barcode format: " + name);
+            }
+            mask |= format;
+        }
+        return mask;
     }
 
     @PluginMethod
@@ -141,7 +320,91 @@ public class NativeBarcodeScannerPlugin extends Plugin {
 
     @PluginMethod
     public void startScan(PluginCall call) {
+        beginScan(call, ScanMode.SINGLE);
+    }
+
+    /**
+     * Continuous scan: keeps the camera bound, emits every newly seen code via the
+     * "barcodeScanned" event and resolves with the full set when the batch is stopped.
+     */
+    @PluginMethod
+    public void startBatchScan(PluginCall call) {
+        beginScan(call, ScanMode.BATCH);
+    }
+
+    /**
+     * Taiwan e-invoice scan: collects the left and right QR codes (and the 1D barcode when
+     * visible) of a receipt from the same or consecutive frames and resolves with one
+     * combined payload. With continuous, every completed invoice is emitted via the
+     * "einvoiceScanned" event and the full list is returned when the scan is stopped.
+     */
+    @PluginMethod
+    public void startEInvoiceScan(PluginCall call) {
+        beginScan(call, ScanMode.EINVOICE);
+    }
+
+    /**
+     * Shelf capture: resolves with every barcode of the first frame containing at least
+     * minBarcodes codes, with bounding boxes and corner points in reading order
+     * (top-to-bottom rows, left-to-right within a row).
+     */
+    @PluginMethod
+    public void startShelfScan(PluginCall call) {
+        beginScan(call, ScanMode.SHELF);
+    }
+
+    private void beginScan(PluginCall call, ScanMode mode) {
+        if (isScanning) {
+            call.reject("Scanner is already running");
+            return;
+        }
+
+        try {
+            int defaultFormats = mode == ScanMode.EINVOICE
+                ? BarcodeFormats.EINVOICE
+                : BarcodeFormats.ALL_SUPPORTED;
+            barcodeScanner = getScannerClient(parseRequestedFormats(call, defaultFormats));
+        } catch (JSONException | IllegalArgumentException e) {
+            call.reject("Invalid formats: " + e.getMessage());
+            return;
+        }
+
+        Double maxDecodesPerSecond = call.getDouble("maxDecodesPerSecond");
+        minDecodeIntervalMs = maxDecodesPerSecond != null && maxDecodesPerSecond > 0
+            ? (long) (1000 / maxDecodesPerSecond)
+            : 0;
+        Long timeout = call.getLong("decodeTimeoutMs");
+        decodeTimeoutMs = timeout != null && timeout > 0 ? timeout : DEFAULT_DECODE_TIMEOUT_MS;
+        abandonDecode();
+        keepCameraBound = call.getBoolean("keepCameraBound", keepCameraBound);
+
+        try {
+            analysisResolution = parseResolution(call.getObject("resolution"));
+            scanWindow = parseScanWindow(call.getObject("scanWindow"));
+        } catch (IllegalArgumentException e) {
+            call.reject(e.getMessage());
+            return;
+        }
+
+        indexHouseholdId = call.getString("householdId");
+
         currentCall = call;
+        scanMode = mode;
+        if (mode == ScanMode.BATCH) {
+            Long window = call.getLong("dedupeWindowMs");
+            dedupeWindowMs = window != null && window >= 0 ? window : DEFAULT_DEDUPE_WINDOW_MS;
+            synchronized (batchEntries) {
+                batchEntries.clear();
+            }
+        } else if (mode == ScanMode.EINVOICE) {
+            eInvoiceContinuous = call.getBoolean("continuous", false);
+            synchronized (eInvoiceCollector) {
+                eInvoiceCollector.reset();
+            }
+        } else if (mode == ScanMode.SHELF) {
+            Integer minBarcodes = call.getInt("minBarcodes");
+            shelfMinBarcodes = minBarcodes != null && minBarcodes > 0 ? minBarcodes : 1;
+        }
         
         Context context = getContext();
         if (context == null) {
@@ -172,11 +435,6 @@ public class NativeBarcodeScannerPlugin extends Plugin {
             return;
         }
 
-        if (isScanning) {
-            call.reject("Scanner is already running");
-            return;
-        }
-
         FragmentActivity activity = getActivity();
         if (activity == null) {
             call.reject("Activity not available");
@@ -226,172 +484,1125 @@ public class NativeBarcodeScannerPlugin extends Plugin {
     }
 
     private void setupCamera(FragmentActivity activity) {
+        scanStartedAtNanos = System.nanoTime();
+        awaitingFirstFrame = true;
+        awaitingFirstResult = true;
+
+        withCameraProvider(activity, provider -> {
+            buildScannerViews(activity);
+            showScannerViews(activity);
+
+            long bindStart = System.nanoTime();
+            ScannerTimings.beginSection(ScannerTimings.BIND);
+            try {
+                bindUseCases(activity, provider);
+            } finally {
+                ScannerTimings.endSection();
+                timings.record(ScannerTimings.BIND, System.nanoTime() - bindStart);
+            }
+
+            isScanning = true;
+            Log.d(TAG, "Camera started successfully");
+        });
+    }
+
+    private void withCameraProvider(FragmentActivity activity, CameraProviderAction action) {
+        withCameraProvider(activity, null, action);
+    }
+
+    /**
+     * Runs the action on the main thread once the ProcessCameraProvider is available,
+     * reusing the provider resolved by a previous scan or prepareScanner() call.
+     * On failure, rejects prepareCall if given, otherwise the pending scan call.
+     */
+    private void withCameraProvider(FragmentActivity activity, PluginCall prepareCall, CameraProviderAction action) {
+        if (cameraProvider != null) {
+            action.run(cameraProvider);
+            return;
+        }
+
+        long acquireStart = System.nanoTime();
+        int cookie = (int) acquireStart;
+        ScannerTimings.beginAsyncSection(ScannerTimings.PROVIDER_ACQUIRE, cookie);
         ListenableFuture<ProcessCameraProvider> cameraProviderFuture = ProcessCameraProvider.getInstance(activity);
-        
         cameraProviderFuture.addListener(() -> {
             try {
                 cameraProvider = cameraProviderFuture.get();
-                    
-                    // Create preview view
-                    previewView = new PreviewView(activity);
-                    previewView.setLayoutParams(new FrameLayout.LayoutParams(
-                        ViewGroup.LayoutParams.MATCH_PARENT,
-                        ViewGroup.LayoutParams.MATCH_PARENT
-                    ));
-
-                    // Create scanner container overlay
-                    scannerContainer = new FrameLayout(activity);
-                    scannerContainer.setLayoutParams(new FrameLayout.LayoutParams(
-                        ViewGroup.LayoutParams.MATCH_PARENT,
-                        ViewGroup.LayoutParams.MATCH_PARENT
-                    ));
-                    scannerContainer.addView(previewView);
-
-                    // Add close button
-                    Button closeButton = new Button(activity);
-                    closeButton.setText("Cancel");
-                    closeButton.setLayoutParams(new FrameLayout.LayoutParams(
-                        ViewGroup.LayoutParams.WRAP_CONTENT,
-                        ViewGroup.LayoutParams.WRAP_CONTENT
-                    ));
-                    FrameLayout.LayoutParams params = (FrameLayout.LayoutParams) closeButton.getLayoutParams();
-                    params.setMargins(0, 50, 50, 0);
-                    params.gravity = android.view.Gravity.TOP | android.view.Gravity.END;
-                    closeButton.setLayoutParams(params);
-                    closeButton.setOnClickListener(v -> {
-                        stopScanning();
-                        if (currentCall != null) {
-                            JSObject result = new JSObject();
-                            result.put("cancelled", true);
-                            currentCall.resolve(result);
-                            currentCall = null;
-                        }
-                    });
-                    scannerContainer.addView(closeButton);
+                ScannerTimings.endAsyncSection(ScannerTimings.PROVIDER_ACQUIRE, cookie);
+                timings.record(ScannerTimings.PROVIDER_ACQUIRE, System.nanoTime() - acquireStart);
+                action.run(cameraProvider);
+            } catch (ExecutionException | InterruptedException e) {
+                Log.e(TAG, "Error setting up camera", e);
+                if (prepareCall != null) {
+                    prepareCall.reject("Failed to prepare scanner: " + e.getMessage());
+                } else if (currentCall != null) {
+                    currentCall.reject("Failed to start camera: " + e.getMessage());
+                    currentCall = null;
+                }
+            }
+        }, ContextCompat.getMainExecutor(activity));
+    }
 
-                    // Add scanner container to activity
-                    ViewGroup rootView = activity.findViewById(android.R.id.content);
-                    if (rootView != null) {
-                        rootView.addView(scannerContainer);
+    private void buildScannerViews(FragmentActivity activity) {
+        if (scannerContainer != null) {
+            return;
+        }
+
+        // Create preview view
+        previewView = new PreviewView(activity);
+        previewView.setLayoutParams(new FrameLayout.LayoutParams(
+            ViewGroup.LayoutParams.MATCH_PARENT,
+            ViewGroup.LayoutParams.MATCH_PARENT
+        ));
+
+        // Create scanner container overlay
+        scannerContainer = new FrameLayout(activity);
+        scannerContainer.setLayoutParams(new FrameLayout.LayoutParams(
+            ViewGroup.LayoutParams.MATCH_PARENT,
+            ViewGroup.LayoutParams.MATCH_PARENT
+        ));
+        scannerContainer.addView(previewView);
+
+        // Add close button
+        closeButton = new Button(activity);
+        closeButton.setText("Cancel");
+        closeButton.setLayoutParams(new FrameLayout.LayoutParams(
+            ViewGroup.LayoutParams.WRAP_CONTENT,
+            ViewGroup.LayoutParams.WRAP_CONTENT
+        ));
+        FrameLayout.LayoutParams params = (FrameLayout.LayoutParams) closeButton.getLayoutParams();
+        params.setMargins(0, 50, 50, 0);
+        params.gravity = android.view.Gravity.TOP | android.view.Gravity.END;
+        closeButton.setLayoutParams(params);
+        // Collected codes are resolved against the barcode index, so not on the UI thread
+        closeButton.setOnClickListener(v -> executorService.execute(() -> {
+            JSObject collected = buildCollectedResult();
+            stopScanning();
+            if (currentCall != null) {
+                JSObject result = collected != null ? collected : new JSObject();
+                result.put("cancelled", collected == null);
+                currentCall.resolve(result);
+                currentCall = null;
+            }
+        }));
+        scannerContainer.addView(closeButton);
+    }
+
+    private void showScannerViews(FragmentActivity activity) {
+        closeButton.setText(isCollecting() ? "Done" : "Cancel");
+
+        // Only the scan window is decoded, so show it to the user
+        if (scanWindowOverlay != null) {
+            scannerContainer.removeView(scanWindowOverlay);
+            scanWindowOverlay = null;
+        }
+        if (scanWindow != null) {
+            scanWindowOverlay = new ScanWindowOverlay(activity, scanWindow);
+            scannerContainer.addView(scanWindowOverlay, 1);
+        }
+
+        // Add scanner container to activity
+        ViewGroup rootView = activity.findViewById(android.R.id.content);
+        if (rootView != null && scannerContainer.getParent() == null) {
+            rootView.addView(scannerContainer);
+        }
+    }
+
+    /**
+     * Binds preview and analysis to the activity lifecycle. When the camera is kept bound
+     * between scans and the analysis configuration is unchanged, only the analyzer is
+     * re-attached.
+     *
+     * Both use cases share the preview's ViewPort, so analysis frames carry a crop rect
+     * covering exactly what the PreviewView shows. The scan window, and its overlay, are
+     * normalized to that area even when the analysis and screen aspect ratios differ.
+     */
+    private void bindUseCases(FragmentActivity activity, ProcessCameraProvider provider) {
+        boolean sameResolution = analysisResolution == null
+            ? boundResolution == null
+            : analysisResolution.equals(boundResolution);
+        if (imageAnalysis != null && sameResolution && provider.isBound(imageAnalysis)) {
+            imageAnalysis.setAnalyzer(executorService, image -> analyzeFrame(image, activity));
+            return;
+        }
+
+        provider.unbindAll();
+
+        // Setup camera preview
+        Preview preview = new Preview.Builder().build();
+        preview.setSurfaceProvider(previewView.getSurfaceProvider());
+
+        // Setup image analysis for barcode detection
+        ImageAnalysis.Builder analysisBuilder = new ImageAnalysis.Builder()
+            .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST);
+        if (analysisResolution != null) {
+            analysisBuilder.setResolutionSelector(new ResolutionSelector.Builder()
+                .setResolutionStrategy(new ResolutionStrategy(
+                    analysisResolution,
+                    ResolutionStrategy.FALLBACK_RULE_CLOSEST_HIGHER_THEN_LOWER
+                ))
+                .build());
+        }
+        imageAnalysis = analysisBuilder.build();
+        boundResolution = analysisResolution;
+
+        imageAnalysis.setAnalyzer(executorService, image -> analyzeFrame(image, activity));
+
+        // Select back camera
+        CameraSelector cameraSelector = new CameraSelector.Builder()
+            .requireLensFacing(CameraSelector.LENS_FACING_BACK)
+            .build();
+
+        UseCaseGroup.Builder useCases = new UseCaseGroup.Builder()
+            .addUseCase(preview)
+            .addUseCase(imageAnalysis);
+        ViewPort viewPort = buildViewPort(activity);
+        if (viewPort != null) {
+            useCases.setViewPort(viewPort);
+        }
+
+        // Bind camera to lifecycle
+        camera = provider.bindToLifecycle(
+            activity,
+            cameraSelector,
+            useCases.build()
+        );
+    }
+
+    /**
+     * The PreviewView's ViewPort. The scanner views are attached in the same pass as the
+     * binding and may not be laid out yet; they fill the content view, so its size stands
+     * in until then.
+     */
+    private ViewPort buildViewPort(FragmentActivity activity) {
+        ViewPort viewPort = previewView.getViewPort();
+        if (viewPort != null) {
+            return viewPort;
+        }
+        View content = activity.findViewById(android.R.id.content);
+        if (content == null || content.getWidth() == 0 || content.getHeight() == 0) {
+            return null;
+        }
+        int rotation = activity.getWindowManager().getDefaultDisplay().getRotation();
+        return new ViewPort.Builder(new Rational(content.getWidth(), content.getHeight()), rotation)
+            .setScaleType(ViewPort.FILL_CENTER)
+            .setLayoutDirection(content.getLayoutDirection())
+            .build();
+    }
+
+    /**
+     * Analyzer entry point. Frames arriving while a decode is in flight, or sooner than the
+     * configured decode rate allows, are closed immediately so they never queue inside ML Kit.
+     */
+    private void analyzeFrame(ImageProxy image, FragmentActivity activity) {
+        decodeStats.framesReceived.incrementAndGet();
+        if (!isScanning) {
+            image.close();
+            return;
+        }
+        if (awaitingFirstFrame) {
+            awaitingFirstFrame = false;
+            timings.record(ScannerTimings.FIRST_FRAME, System.nanoTime() - scanStartedAtNanos);
+        }
+
+        long now = SystemClock.elapsedRealtime();
+        if (decodeInFlight.get()) {
+            if (now - decodeStartedAt < decodeTimeoutMs || abandonedDecodes.get() >= MAX_ABANDONED_DECODES) {
+                decodeStats.framesDropped.incrementAndGet();
+                image.close();
+                return;
+            }
+            // The previous decode is stuck; drop its result and let this frame through. Its
+            // task still runs, so only MAX_ABANDONED_DECODES of them are allowed at a time.
+            decodeStats.framesTimedOut.incrementAndGet();
+            abandonDecode();
+        }
+        if (minDecodeIntervalMs > 0 && now - decodeStartedAt < minDecodeIntervalMs) {
+            decodeStats.framesDropped.incrementAndGet();
+            image.close();
+            return;
+        }
+
+        // The generation is taken first, so an abandonDecode() racing with this one always
+        // leaves this decode with a stale generation
+        final long generation = decodeGeneration.incrementAndGet();
+        decodeStartedAt = now;
+        decodeInFlight.set(true);
+
+        // The frame (or just the scan window) is copied and the camera buffer returned before
+        // decoding, so a stuck ML Kit call never holds the stream back and the timeout above
+        // can let the next frame through
+        InputImage inputImage;
+        try {
+            long cropStart = System.nanoTime();
+            ScannerTimings.beginSection(ScannerTimings.CROP);
+            try {
+                inputImage = buildCroppedInputImage(image, scanWindow != null ? scanWindow : FrameCrop.FULL_FRAME);
+            } finally {
+                ScannerTimings.endSection();
+            }
+            timings.record(ScannerTimings.CROP, System.nanoTime() - cropStart);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to prepare frame for decoding", e);
+            decodeStats.decodeFailures.incrementAndGet();
+            finishDecode(generation);
+            return;
+        } finally {
+            image.close();
+        }
+
+        // ML Kit reports geometry in the upright orientation of the decoded image
+        boolean rotated = inputImage.getRotationDegrees() % 180 != 0;
+        final int frameWidth = rotated ? inputImage.getHeight() : inputImage.getWidth();
+        final int frameHeight = rotated ? inputImage.getWidth() : inputImage.getHeight();
+
+        final long decodeStart = System.nanoTime();
+        final int traceCookie = (int) generation;
+        ScannerTimings.beginAsyncSection(ScannerTimings.DECODE, traceCookie);
+        // Listeners run on the analyzer thread rather than ML Kit's default main-thread
+        // executor: resolving codes reads the on-device barcode index
+        barcodeScanner.process(inputImage)
+            .addOnSuccessListener(executorService, barcodes -> {
+                if (generation != decodeGeneration.get()) {
+                    // Result arrived after the decode was declared timed out
+                    return;
+                }
+                decodeStats.framesDecoded.incrementAndGet();
+                if (isScanning) {
+                    switch (scanMode) {
+                        case BATCH:
+                            handleBatchBarcodes(barcodes, activity);
+                            break;
+                        case EINVOICE:
+                            handleEInvoiceBarcodes(barcodes, activity);
+                            break;
+                        case SHELF:
+                            handleShelfBarcodes(barcodes, frameWidth, frameHeight, activity);
+                            break;
+                        default:
+                            handleSingleBarcodes(barcodes, activity);
+                            break;
                     }
+                }
+            })
+            .addOnFailureListener(executorService, e -> {
+                Log.e(TAG, "Barcode scanning failed", e);
+                decodeStats.decodeFailures.incrementAndGet();
+            })
+            .addOnCompleteListener(executorService, task -> {
+                ScannerTimings.endAsyncSection(ScannerTimings.DECODE, traceCookie);
+                timings.record(ScannerTimings.DECODE, System.nanoTime() - decodeStart);
+                finishDecode(generation);
+            });
+    }
 
-                    // Setup camera preview
-                    Preview preview = new Preview.Builder().build();
-                    preview.setSurfaceProvider(previewView.getSurfaceProvider());
+    private void finishDecode(long generation) {
+        if (generation == decodeGeneration.get()) {
+            decodeInFlight.set(false);
+        } else {
+            // Only abandoned decodes see a newer generation
+            abandonedDecodes.decrementAndGet();
+        }
+    }
 
-                    // Setup image analysis for barcode detection
-                    ImageAnalysis imageAnalysis = new ImageAnalysis.Builder()
-                        .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
-                        .build();
+    /**
+     * Stops waiting for the decode in flight, if any. ML Kit cannot cancel it, so the task
+     * is counted until it completes and its result is ignored.
+     */
+    private void abandonDecode() {
+        if (decodeInFlight.getAndSet(false)) {
+            abandonedDecodes.incrementAndGet();
+            decodeGeneration.incrementAndGet();
+        }
+    }
 
-                    imageAnalysis.setAnalyzer(executorService, image -> {
-                        if (!isScanning) {
-                            image.close();
-                            return;
-                        }
+    private Size parseResolution(JSObject resolution) {
+        if (resolution == null) {
+            return null;
+        }
+        int width = resolution.optInt("width", 0);
+        int height = resolution.optInt("height", 0);
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("resolution requires positive width and height");
+        }
+        return new Size(width, height);
+    }
 
-                        InputImage inputImage = InputImage.fromMediaImage(
-                            image.getImage(),
-                            image.getImageInfo().getRotationDegrees()
-                        );
-
-                        barcodeScanner.process(inputImage)
-                            .addOnSuccessListener(barcodes -> {
-                                if (!isScanning) {
-                                    image.close();
-                                    return;
-                                }
-
-                                for (Barcode barcode : barcodes) {
-                                    String rawValue = barcode.getRawValue();
-                                    if (rawValue != null && !rawValue.isEmpty()) {
-                                        // Barcode detected
-                                        stopScanning();
-                                        
-                                        if (currentCall != null) {
-                                            JSObject result = new JSObject();
-                                            result.put("hasContent", true);
-                                            result.put("content", rawValue);
-                                            result.put("format", getBarcodeFormatString(barcode.getFormat()));
-                                            currentCall.resolve(result);
-                                            currentCall = null;
-                                        }
-                                        
-                                        // Vibrate
-                                        android.os.Vibrator vibrator = (android.os.Vibrator) activity.getSystemService(Context.VIBRATOR_SERVICE);
-                                        if (vibrator != null && vibrator.hasVibrator()) {
-                                            vibrator.vibrate(200);
-                                        }
-                                        
-                                        image.close();
-                                        return;
-                                    }
-                                }
-                                image.close();
-                            })
-                            .addOnFailureListener(e -> {
-                                Log.e(TAG, "Barcode scanning failed", e);
-                                image.close();
-                            });
-                    });
+    private RectF parseScanWindow(JSObject window) {
+        if (window == null) {
+            return null;
+        }
+        float left = (float) window.optDouble("left", 0);
+        float top = (float) window.optDouble("top", 0);
+        float width = (float) window.optDouble("width", 1);
+        float height = (float) window.optDouble("height", 1);
+        if (left < 0 || top < 0 || width <= 0 || height <= 0 || left + width > 1 || top + height > 1) {
+            throw new IllegalArgumentException("scanWindow must be a normalized rectangle within 0..1");
+        }
+        return new RectF(left, top, left + width, top + height);
+    }
+
+    /**
+     * Copies the scan window out of a YUV_420_888 frame into an NV21 buffer so ML Kit
+     * only decodes the cropped region and the frame can be closed right away. The window
+     * is normalized to the frame's crop rect, the part of the frame the preview shows.
+     */
+    private InputImage buildCroppedInputImage(ImageProxy image, RectF window) {
+        int rotation = image.getImageInfo().getRotationDegrees();
+        Rect crop = FrameCrop.toSensorCropRect(window, rotation, image.getCropRect());
+        byte[] nv21 = cropToNv21(image, crop);
+        return InputImage.fromByteArray(
+            nv21,
+            crop.width(),
+            crop.height(),
+            rotation,
+            InputImage.IMAGE_FORMAT_NV21
+        );
+    }
 
-                    // Select back camera
-                    CameraSelector cameraSelector = new CameraSelector.Builder()
-                        .requireLensFacing(CameraSelector.LENS_FACING_BACK)
-                        .build();
+    private static byte[] cropToNv21(ImageProxy image, Rect crop) {
+        ImageProxy.PlaneProxy[] planes = image.getPlanes();
+        return FrameCrop.cropToNv21(
+            planes[0].getBuffer(), planes[0].getRowStride(), planes[0].getPixelStride(),
+            planes[1].getBuffer(), planes[2].getBuffer(), planes[1].getRowStride(), planes[1].getPixelStride(),
+            crop
+        );
+    }
 
-                    // Bind camera to lifecycle
-                    camera = cameraProvider.bindToLifecycle(
-                        activity,
-                        cameraSelector,
-                        preview,
-                        imageAnalysis
-                    );
+    private void handleSingleBarcodes(List<Barcode> barcodes, FragmentActivity activity) {
+        for (Barcode barcode : barcodes) {
+            String rawValue = barcode.getRawValue();
+            if (rawValue != null && !rawValue.isEmpty()) {
+                // Barcode detected
+                stopScanning();
 
-                    isScanning = true;
-                    Log.d(TAG, "Camera started successfully");
+                JSObject result = new JSObject();
+                result.put("hasContent", true);
+                result.put("content", rawValue);
+                result.put("format", BarcodeFormats.name(barcode.getFormat()));
+                attachKnownItem(result, rawValue, indexHouseholdId);
+                deliverResult(result);
 
-            } catch (ExecutionException | InterruptedException e) {
-                Log.e(TAG, "Error setting up camera", e);
-                if (currentCall != null) {
-                    currentCall.reject("Failed to start camera: " + e.getMessage());
-                    currentCall = null;
+                vibrate(activity);
+                return;
+            }
+        }
+    }
+
+    private void handleBatchBarcodes(List<Barcode> barcodes, FragmentActivity activity) {
+        long now = System.currentTimeMillis();
+        boolean emitted = false;
+
+        for (Barcode barcode : barcodes) {
+            String rawValue = barcode.getRawValue();
+            if (rawValue == null || rawValue.isEmpty()) {
+                continue;
+            }
+
+            String format = BarcodeFormats.name(barcode.getFormat());
+            BatchEntry entry;
+            synchronized (batchEntries) {
+                String key = format + ":" + rawValue;
+                entry = batchEntries.get(key);
+                if (entry == null) {
+                    entry = new BatchEntry(rawValue, format, now);
+                    batchEntries.put(key, entry);
+                } else if (now - entry.lastSeenAt < dedupeWindowMs) {
+                    // Same code still in front of the camera, just extend the window
+                    entry.lastSeenAt = now;
+                    continue;
+                } else {
+                    entry.count++;
+                    entry.lastSeenAt = now;
                 }
             }
-        }, ContextCompat.getMainExecutor(activity));
+
+            JSObject event = entry.toJSObject();
+            event.put("hasContent", true);
+            attachKnownItem(event, entry.content, indexHouseholdId);
+            deliverEvent("barcodeScanned", event);
+            emitted = true;
+        }
+
+        if (emitted) {
+            vibrate(activity);
+        }
+    }
+
+    private void handleEInvoiceBarcodes(List<Barcode> barcodes, FragmentActivity activity) {
+        List<JSObject> invoices;
+        synchronized (eInvoiceCollector) {
+            invoices = eInvoiceCollector.accept(barcodes, System.currentTimeMillis());
+        }
+        if (invoices.isEmpty()) {
+            return;
+        }
+
+        vibrate(activity);
+        if (eInvoiceContinuous) {
+            for (JSObject invoice : invoices) {
+                deliverEvent("einvoiceScanned", invoice);
+            }
+            return;
+        }
+
+        stopScanning();
+        deliverResult(invoices.get(0));
+    }
+
+    private void handleShelfBarcodes(List<Barcode> barcodes, int frameWidth, int frameHeight, FragmentActivity activity) {
+        List<Barcode> found = new ArrayList<>();
+        for (Barcode barcode : barcodes) {
+            String rawValue = barcode.getRawValue();
+            if (rawValue != null && !rawValue.isEmpty()) {
+                found.add(barcode);
+            }
+        }
+        if (found.size() < shelfMinBarcodes) {
+            return;
+        }
+
+        JSONArray codes = new JSONArray();
+        for (Barcode barcode : sortInReadingOrder(found)) {
+            codes.put(toDetailedJSObject(barcode, indexHouseholdId));
+        }
+
+        JSObject frame = new JSObject();
+        frame.put("width", frameWidth);
+        frame.put("height", frameHeight);
+
+        JSObject result = new JSObject();
+        result.put("hasContent", true);
+        result.put("barcodes", codes);
+        result.put("count", codes.length());
+        result.put("frame", frame);
+
+        stopScanning();
+        deliverResult(result);
+        vibrate(activity);
+    }
+
+    private JSObject toDetailedJSObject(Barcode barcode, String householdId) {
+        JSObject obj = new JSObject();
+        obj.put("content", barcode.getRawValue());
+        obj.put("format", BarcodeFormats.name(barcode.getFormat()));
+        attachKnownItem(obj, barcode.getRawValue(), householdId);
+
+        Rect box = barcode.getBoundingBox();
+        if (box != null) {
+            JSObject boundingBox = new JSObject();
+            boundingBox.put("left", box.left);
+            boundingBox.put("top", box.top);
+            boundingBox.put("right", box.right);
+            boundingBox.put("bottom", box.bottom);
+            obj.put("boundingBox", boundingBox);
+        }
+
+        Point[] corners = barcode.getCornerPoints();
+        if (corners != null) {
+            JSONArray cornerPoints = new JSONArray();
+            for (Point corner : corners) {
+                JSObject point = new JSObject();
+                point.put("x", corner.x);
+                point.put("y", corner.y);
+                cornerPoints.put(point);
+            }
+            obj.put("cornerPoints", cornerPoints);
+        }
+        return obj;
+    }
+
+    /**
+     * Groups barcodes into rows by vertical center (codes overlapping by at least half a
+     * box height share a row), then orders rows top-to-bottom and codes left-to-right.
+     */
+    private static List<Barcode> sortInReadingOrder(List<Barcode> barcodes) {
+        List<Barcode> byTop = new ArrayList<>(barcodes);
+        Collections.sort(byTop, Comparator.comparingInt(b -> centerY(b)));
+
+        List<List<Barcode>> rows = new ArrayList<>();
+        List<Barcode> row = null;
+        int rowCenter = 0;
+        for (Barcode barcode : byTop) {
+            int center = centerY(barcode);
+            Rect box = barcode.getBoundingBox();
+            int tolerance = box != null ? box.height() / 2 : 0;
+            if (row != null && Math.abs(center - rowCenter) <= tolerance) {
+                row.add(barcode);
+                rowCenter = (rowCenter * (row.size() - 1) + center) / row.size();
+            } else {
+                row = new ArrayList<>();
+                row.add(barcode);
+                rows.add(row);
+                rowCenter = center;
+            }
+        }
+
+        List<Barcode> ordered = new ArrayList<>(barcodes.size());
+        for (List<Barcode> r : rows) {
+            Collections.sort(r, Comparator.comparingInt(b -> {
+                Rect box = b.getBoundingBox();
+                return box != null ? box.left : 0;
+            }));
+            ordered.addAll(r);
+        }
+        return ordered;
+    }
+
+    private static int centerY(Barcode barcode) {
+        Rect box = barcode.getBoundingBox();
+        return box != null ? box.centerY() : 0;
+    }
+
+    /**
+     * Resolves the pending scan call, timing the hand-off to the bridge and, for the first
+     * result of a scan, the total time from scan start.
+     */
+    private void deliverResult(JSObject result) {
+        PluginCall call = currentCall;
+        if (call == null) {
+            return;
+        }
+        currentCall = null;
+
+        long start = System.nanoTime();
+        ScannerTimings.beginSection(ScannerTimings.RESOLVE);
+        try {
+            call.resolve(result);
+        } finally {
+            ScannerTimings.endSection();
+        }
+        recordDelivery(start);
+    }
+
+    private void deliverEvent(String eventName, JSObject data) {
+        long start = System.nanoTime();
+        ScannerTimings.beginSection(ScannerTimings.RESOLVE);
+        try {
+            notifyListeners(eventName, data);
+        } finally {
+            ScannerTimings.endSection();
+        }
+        recordDelivery(start);
+    }
+
+    private void recordDelivery(long start) {
+        long end = System.nanoTime();
+        timings.record(ScannerTimings.RESOLVE, end - start);
+        if (awaitingFirstResult) {
+            awaitingFirstResult = false;
+            timings.record(ScannerTimings.TIME_TO_RESULT, end - scanStartedAtNanos);
+        }
+    }
+
+    private JSObject buildEInvoiceResult() {
+        JSONArray invoices = new JSONArray();
+        synchronized (eInvoiceCollector) {
+            for (JSObject invoice : eInvoiceCollector.getCompleted()) {
+                invoices.put(invoice);
+            }
+        }
+
+        JSObject result = new JSObject();
+        result.put("hasContent", invoices.length() > 0);
+        result.put("invoices", invoices);
+        result.put("count", invoices.length());
+        return result;
+    }
+
+    /**
+     * Modes that accumulate results until the user or JS stops them.
+     */
+    private boolean isCollecting() {
+        return scanMode == ScanMode.BATCH || (scanMode == ScanMode.EINVOICE && eInvoiceContinuous);
+    }
+
+    /**
+     * The accumulated result of a collecting scan, or null for single-result modes.
+     */
+    private JSObject buildCollectedResult() {
+        if (scanMode == ScanMode.BATCH) {
+            return buildBatchResult();
+        }
+        if (scanMode == ScanMode.EINVOICE && eInvoiceContinuous) {
+            return buildEInvoiceResult();
+        }
+        return null;
+    }
+
+    private JSObject buildBatchResult() {
+        JSONArray codes = new JSONArray();
+        synchronized (batchEntries) {
+            for (BatchEntry entry : batchEntries.values()) {
+                JSObject code = entry.toJSObject();
+                attachKnownItem(code, entry.content, indexHouseholdId);
+                codes.put(code);
+            }
+        }
+
+        JSObject result = new JSObject();
+        result.put("hasContent", codes.length() > 0);
+        result.put("barcodes", codes);
+        result.put("count", codes.length());
+        return result;
+    }
+
+    private void vibrate(Context context) {
+        android.os.Vibrator vibrator = (android.os.Vibrator) context.getSystemService(Context.VIBRATOR_SERVICE);
+        if (vibrator != null && vibrator.hasVibrator()) {
+            vibrator.vibrate(200);
+        }
     }
 
     private void stopScanning() {
         isScanning = false;
-        
-        if (cameraProvider != null) {
-            cameraProvider.unbindAll();
-            cameraProvider = null;
-        }
-        
-        if (camera != null) {
-            camera = null;
+        scanMode = ScanMode.SINGLE;
+
+        if (keepCameraBound && imageAnalysis != null) {
+            // Pause analysis only; the camera stays bound for the next scan
+            imageAnalysis.clearAnalyzer();
         }
 
         FragmentActivity activity = getActivity();
-        if (activity != null && scannerContainer != null) {
+        if (activity != null) {
             activity.runOnUiThread(() -> {
-                ViewGroup rootView = activity.findViewById(android.R.id.content);
-                if (rootView != null && scannerContainer != null) {
-                    rootView.removeView(scannerContainer);
+                if (!keepCameraBound) {
+                    releaseCamera();
+                }
+                if (scannerContainer != null) {
+                    ViewGroup rootView = activity.findViewById(android.R.id.content);
+                    if (rootView != null) {
+                        rootView.removeView(scannerContainer);
+                    }
+                }
+                if (!keepCameraBound) {
+                    scannerContainer = null;
+                    scanWindowOverlay = null;
+                    closeButton = null;
+                    previewView = null;
                 }
-                scannerContainer = null;
-                previewView = null;
             });
+        } else {
+            releaseCamera();
+        }
+    }
+
+    private void releaseCamera() {
+        if (cameraProvider != null) {
+            cameraProvider.unbindAll();
+            cameraProvider = null;
         }
+        imageAnalysis = null;
+        boundResolution = null;
+        camera = null;
+    }
+
+    /**
+     * Resolves the camera provider and builds the scanner views ahead of the first scan.
+     * With keepCameraBound, later scans pause analysis between uses instead of unbinding.
+     */
+    @PluginMethod
+    public void prepareScanner(PluginCall call) {
+        FragmentActivity activity = getActivity();
+        if (activity == null) {
+            call.reject("Activity not available");
+            return;
+        }
+
+        keepCameraBound = call.getBoolean("keepCameraBound", keepCameraBound);
+        activity.runOnUiThread(() -> {
+            try {
+                withCameraProvider(activity, call, provider -> {
+                    buildScannerViews(activity);
+                    JSObject result = new JSObject();
+                    result.put("prepared", true);
+                    result.put("keepCameraBound", keepCameraBound);
+                    call.resolve(result);
+                });
+            } catch (Exception e) {
+                Log.e(TAG, "Error preparing scanner", e);
+                call.reject("Failed to prepare scanner: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Fully unbinds the camera and drops the prepared views, regardless of keepCameraBound.
+     */
+    @PluginMethod
+    public void releaseScanner(PluginCall call) {
+        keepCameraBound = false;
+        stopScanning();
+        call.resolve();
     }
 
     @PluginMethod
     public void stopScan(PluginCall call) {
+        JSObject result = buildCollectedResult();
+        if (result != null) {
+            // Finish the batch: the pending scan call and this call both get the full set
+            stopScanning();
+            if (currentCall != null) {
+                currentCall.resolve(result);
+                currentCall = null;
+            }
+            call.resolve(result);
+            return;
+        }
+
         stopScanning();
         call.resolve();
     }
 
+    /**
+     * Decodes still images (gallery URIs / file paths or base64 payloads) concurrently on
+     * the still-image pool. Each finished image is emitted as an "imageDecoded" event; the
+     * call resolves with every result, in input order, once all images are done.
+     */
+    @PluginMethod
+    public void decodeImages(PluginCall call) {
+        JSArray images = call.getArray("images");
+        if (images == null || images.length() == 0) {
+            call.reject("images is required");
+            return;
+        }
+
+        int formats;
+        try {
+            formats = parseRequestedFormats(call, BarcodeFormats.ALL_SUPPORTED);
+        } catch (JSONException | IllegalArgumentException e) {
+            call.reject("Invalid formats: " + e.getMessage());
+            return;
+        }
+
+        Context context = getContext();
+        if (context == null) {
+            call.reject("Context not available");
+            return;
+        }
+
+        // Kept per call: a live scan may be resolving codes against another household
+        String householdId = call.getString("householdId");
+
+        int total = images.length();
+        JSObject[] results = new JSObject[total];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger remaining = new AtomicInteger(total);
+        BarcodeScanner scanner = acquireScannerClient(formats);
+
+        // A few workers pull images off a shared index, so a large import only ever
+        // occupies as many queue slots as there are threads
+        Runnable worker = () -> {
+            int index;
+            while ((index = next.getAndIncrement()) < total) {
+                JSObject result = decodeStillImage(context, scanner, images.opt(index), householdId);
+                result.put("index", index);
+                results[index] = result;
+                notifyListeners("imageDecoded", result);
+
+                if (remaining.decrementAndGet() == 0) {
+                    releaseScannerClient(scanner);
+                    JSONArray all = new JSONArray();
+                    int decoded = 0;
+                    for (JSObject r : results) {
+                        all.put(r);
+                        if (r.optBoolean("hasContent", false)) {
+                            decoded++;
+                        }
+                    }
+                    JSObject done = new JSObject();
+                    done.put("results", all);
+                    done.put("count", total);
+                    done.put("decodedCount", decoded);
+                    call.resolve(done);
+                }
+            }
+        };
+
+        int workers = Math.min(total, ((ThreadPoolExecutor) stillImageExecutor).getMaximumPoolSize());
+        int started = 0;
+        for (int i = 0; i < workers; i++) {
+            try {
+                stillImageExecutor.execute(worker);
+                started++;
+            } catch (RejectedExecutionException e) {
+                break;
+            }
+        }
+        if (started == 0) {
+            // Nothing will ever take the images; the workers that did start drain them all otherwise
+            releaseScannerClient(scanner);
+            call.reject("Too many image decodes in progress, try again later");
+        }
+    }
+
+    /**
+     * Blocking decode of one image; runs on a pool thread. Sources are either a string
+     * (content/file URI, or base64 with an optional data URL prefix) or an object with
+     * a "uri" or "base64" field. Images are downsampled to MAX_STILL_IMAGE_DIMENSION.
+     */
+    private JSObject decodeStillImage(Context context, BarcodeScanner scanner, Object source, String householdId) {
+        JSObject result = new JSObject();
+        try {
+            String uri = null;
+            String base64 = null;
+            if (source instanceof String) {
+                String value = (String) source;
+                if (value.startsWith("content://") || value.startsWith("file://") || value.startsWith("/")) {
+                    uri = value;
+                } else {
+                    base64 = value;
+                }
+            } else if (source instanceof org.json.JSONObject) {
+                org.json.JSONObject obj = (org.json.JSONObject) source;
+                uri = obj.optString("uri", null);
+                base64 = obj.optString("base64", null);
+            }
+
+            InputImage inputImage;
+            if (uri != null) {
+                result.put("source", uri);
+                Uri parsed = uri.startsWith("/") ? Uri.fromFile(new java.io.File(uri)) : Uri.parse(uri);
+                StreamOpener opener = () -> {
+                    InputStream in = context.getContentResolver().openInputStream(parsed);
+                    if (in == null) {
+                        throw new IOException("Cannot open " + uri);
+                    }
+                    return in;
+                };
+                inputImage = InputImage.fromBitmap(decodeSampledBitmap(opener), readExifRotation(opener));
+            } else if (base64 != null) {
+                result.put("source", "base64");
+                int comma = base64.indexOf(',');
+                if (base64.startsWith("data:") && comma > 0) {
+                    base64 = base64.substring(comma + 1);
+                }
+                byte[] bytes = Base64.decode(base64, Base64.DEFAULT);
+                inputImage = InputImage.fromBitmap(decodeSampledBitmap(() -> new ByteArrayInputStream(bytes)), 0);
+            } else {
+                throw new IllegalArgumentException("Image must be a URI or base64 string");
+            }
+
+            List<Barcode> barcodes = Tasks.await(scanner.process(inputImage));
+            JSONArray codes = new JSONArray();
+            for (Barcode barcode : sortInReadingOrder(barcodes)) {
+                String rawValue = barcode.getRawValue();
+                if (rawValue != null && !rawValue.isEmpty()) {
+                    codes.put(toDetailedJSObject(barcode, householdId));
+                }
+            }
+            result.put("hasContent", codes.length() > 0);
+            result.put("barcodes", codes);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to decode image", e);
+            result.put("hasContent", false);
+            result.put("barcodes", new JSONArray());
+            result.put("error", e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+        return result;
+    }
+
+    /**
+     * Decodes an encoded image at the smallest power-of-two scale that brings its longer
+     * side down to MAX_STILL_IMAGE_DIMENSION, so a batch of camera photos fits in memory.
+     */
+    private static Bitmap decodeSampledBitmap(StreamOpener opener) throws IOException {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = opener.open()) {
+            BitmapFactory.decodeStream(in, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IllegalArgumentException("Unsupported image data");
+        }
+
+        int longerSide = Math.max(bounds.outWidth, bounds.outHeight);
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = 1;
+        while (longerSide / options.inSampleSize > MAX_STILL_IMAGE_DIMENSION) {
+            options.inSampleSize *= 2;
+        }
+
+        Bitmap bitmap;
+        try (InputStream in = opener.open()) {
+            bitmap = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (bitmap == null) {
+            throw new IllegalArgumentException("Unsupported image data");
+        }
+        return bitmap;
+    }
+
+    /**
+     * Rotation needed to show a photo upright, from its EXIF orientation. Reading EXIF from
+     * a stream needs API 24; older devices decode the image as stored.
+     */
+    private static int readExifRotation(StreamOpener opener) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+            return 0;
+        }
+        try (InputStream in = opener.open()) {
+            int orientation = new ExifInterface(in).getAttributeInt(
+                ExifInterface.TAG_ORIENTATION,
+                ExifInterface.ORIENTATION_NORMAL
+            );
+            switch (orientation) {
+                case ExifInterface.ORIENTATION_ROTATE_90:
+                    return 90;
+                case ExifInterface.ORIENTATION_ROTATE_180:
+                    return 180;
+                case ExifInterface.ORIENTATION_ROTATE_270:
+                    return 270;
+                default:
+                    return 0;
+            }
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Adds items to the local barcode index of a household. Each item is indexed under its
+     * barcode and qrCode. With replace, the household's index is rebuilt from this list.
+     */
+    @PluginMethod
+    public void updateBarcodeIndex(PluginCall call) {
+        String householdId = call.getString("householdId");
+        JSArray items = call.getArray("items");
+        if (householdId == null || items == null) {
+            call.reject("householdId and items are required");
+            return;
+        }
+
+        try {
+            List<BarcodeIndexStore.Entry> entries = new ArrayList<>();
+            for (int i = 0; i < items.length(); i++) {
+                org.json.JSONObject item = items.optJSONObject(i);
+                if (item == null || !item.has("id")) {
+                    continue;
+                }
+                String itemId = item.getString("id");
+                String itemJson = item.toString();
+                for (String key : new String[]{"barcode", "qrCode"}) {
+                    String code = item.optString(key, "");
+                    if (!code.isEmpty() && !"null".equals(code)) {
+                        entries.add(new BarcodeIndexStore.Entry(code, itemId, itemJson));
+                    }
+                }
+            }
+
+            JSArray removedIds = call.getArray("removeItemIds");
+            int removed = 0;
+            if (removedIds != null) {
+                for (int i = 0; i < removedIds.length(); i++) {
+                    removed += barcodeIndex.removeItem(householdId, removedIds.getString(i));
+                }
+            }
+
+            int written = barcodeIndex.upsert(householdId, entries, call.getBoolean("replace", false));
+
+            JSObject result = new JSObject();
+            result.put("indexed", written);
+            result.put("removed", removed);
+            call.resolve(result);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to update barcode index", e);
+            call.reject("Failed to update barcode index: " + e.getMessage());
+        }
+    }
+
+    @PluginMethod
+    public void lookupBarcode(PluginCall call) {
+        String householdId = call.getString("householdId");
+        String barcode = call.getString("barcode");
+        if (householdId == null || barcode == null) {
+            call.reject("householdId and barcode are required");
+            return;
+        }
+
+        try {
+            JSObject result = new JSObject();
+            result.put("content", barcode);
+            String itemJson = barcodeIndex.lookup(householdId, barcode);
+            result.put("knownItem", itemJson != null);
+            if (itemJson != null) {
+                result.put("item", new JSObject(itemJson));
+            }
+            call.resolve(result);
+        } catch (Exception e) {
+            Log.e(TAG, "Barcode lookup failed", e);
+            call.reject("Barcode lookup failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Clears the index of one household, or of every household when none is given.
+     */
+    @PluginMethod
+    public void clearBarcodeIndex(PluginCall call) {
+        String householdId = call.getString("householdId");
+        try {
+            int removed = barcodeIndex.clear(householdId);
+            JSObject result = new JSObject();
+            result.put("removed", removed);
+            call.resolve(result);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to clear barcode index", e);
+            call.reject("Failed to clear barcode index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Resolves a decoded code against the given household with a primary-key lookup.
+     * Without a householdId the result is left as is; a broken index never fails a scan.
+     */
+    private void attachKnownItem(JSObject target, String content, String householdId) {
+        if (householdId == null || content == null) {
+            return;
+        }
+        String itemJson;
+        try {
+            itemJson = barcodeIndex.lookup(householdId, content);
+        } catch (Exception e) {
+            Log.e(TAG, "Barcode index lookup failed", e);
+            return;
+        }
+        target.put("knownItem", itemJson != null);
+        if (itemJson != null) {
+            try {
+                target.put("item", new JSObject(itemJson));
+            } catch (JSONException e) {
+                Log.w(TAG, "Corrupt barcode index entry for " + content, e);
+            }
+        }
+    }
+
+    @PluginMethod
+    public void getScannerStats(PluginCall call) {
+        JSObject result = decodeStats.toJSObject();
+        result.put("inFlight", decodeInFlight.get());
+        result.put("abandonedInFlight", abandonedDecodes.get());
+        result.put("maxDecodesPerSecond", minDecodeIntervalMs > 0 ? 1000.0 / minDecodeIntervalMs : 0);
+        result.put("decodeTimeoutMs", decodeTimeoutMs);
+        if (call.getBoolean("reset", false)) {
+            decodeStats.reset();
+        }
+        call.resolve(result);
+    }
+
+    /**
+     * Per-stage pipeline timings (ms): providerAcquire, bind, firstFrame, crop, decode,
+     * resolve and timeToResult, each with count/mean/p50/p90/p99/max over the last samples.
+     */
+    @PluginMethod
+    public void getScannerTimings(PluginCall call) {
+        JSObject result = timings.toJSObject(call.getBoolean("includeSamples", false));
+        if (call.getBoolean("reset", false)) {
+            timings.reset();
+        }
+        call.resolve(result);
+    }
+
     @PluginMethod
     public void hideBackground(PluginCall call) {
         // Background is already hidden when scanner is shown
@@ -404,49 +1615,133 @@ public class NativeBarcodeScannerPlugin extends Plugin {
         call.resolve();
     }
 
-    private String getBarcodeFormatString(int format) {
-        switch (format) {
-            case Barcode.FORMAT_QR_CODE:
-                return "QR_CODE";
-            case Barcode.FORMAT_EAN_13:
-                return "EAN_13";
-            case Barcode.FORMAT_EAN_8:
-                return "EAN_8";
-            case Barcode.FORMAT_UPC_A:
-                return "UPC_A";
-            case Barcode.FORMAT_UPC_E:
-                return "UPC_E";
-            case Barcode.FORMAT_CODE_39:
-                return "CODE_39";
-            case Barcode.FORMAT_CODE_93:
-                return "CODE_93";
-            case Barcode.FORMAT_CODE_128:
-                return "CODE_128";
-            case Barcode.FORMAT_PDF417:
-                return "PDF417";
-            case Barcode.FORMAT_AZTEC:
-                return "AZTEC";
-            case Barcode.FORMAT_DATA_MATRIX:
-                return "DATA_MATRIX";
-            case Barcode.FORMAT_CODABAR:
-                return "CODABAR";
-            case Barcode.FORMAT_ITF:
-                return "ITF";
-            default:
-                return "UNKNOWN";
+    /**
+     * Dims everything outside the scan window and outlines the window itself. The overlay
+     * covers the same area as the PreviewView, whose ViewPort the analysis frames share,
+     * so the outline matches the region that is decoded.
+     */
+    private static class ScanWindowOverlay extends View {
+        private final RectF window;
+        private final Paint maskPaint = new Paint();
+        private final Paint borderPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+        ScanWindowOverlay(Context context, RectF window) {
+            super(context);
+            this.window = window;
+            setLayoutParams(new FrameLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.MATCH_PARENT
+            ));
+            maskPaint.setColor(Color.argb(128, 0, 0, 0));
+            borderPaint.setColor(Color.WHITE);
+            borderPaint.setStyle(Paint.Style.STROKE);
+            borderPaint.setStrokeWidth(4f);
+        }
+
+        @Override
+        protected void onDraw(Canvas canvas) {
+            super.onDraw(canvas);
+            float width = getWidth();
+            float height = getHeight();
+            float left = window.left * width;
+            float top = window.top * height;
+            float right = window.right * width;
+            float bottom = window.bottom * height;
+
+            canvas.drawRect(0, 0, width, top, maskPaint);
+            canvas.drawRect(0, bottom, width, height, maskPaint);
+            canvas.drawRect(0, top, left, bottom, maskPaint);
+            canvas.drawRect(right, top, width, bottom, maskPaint);
+            canvas.drawRect(left, top, right, bottom, borderPaint);
+        }
+    }
+
+    private enum ScanMode {
+        SINGLE,
+        BATCH,
+        EINVOICE,
+        SHELF
+    }
+
+    private interface CameraProviderAction {
+        void run(ProcessCameraProvider provider);
+    }
+
+    private interface StreamOpener {
+        InputStream open() throws IOException;
+    }
+
+    private static class DecodeStats {
+        final AtomicLong framesReceived = new AtomicLong();
+        final AtomicLong framesDropped = new AtomicLong();
+        final AtomicLong framesDecoded = new AtomicLong();
+        final AtomicLong framesTimedOut = new AtomicLong();
+        final AtomicLong decodeFailures = new AtomicLong();
+
+        void reset() {
+            framesReceived.set(0);
+            framesDropped.set(0);
+            framesDecoded.set(0);
+            framesTimedOut.set(0);
+            decodeFailures.set(0);
+        }
+
+        JSObject toJSObject() {
+            JSObject obj = new JSObject();
+            obj.put("framesReceived", framesReceived.get());
+            obj.put("framesDropped", framesDropped.get());
+            obj.put("framesDecoded", framesDecoded.get());
+            obj.put("framesTimedOut", framesTimedOut.get());
+            obj.put("decodeFailures", decodeFailures.get());
+            return obj;
+        }
+    }
+
+    private static class BatchEntry {
+        final String content;
+        final String format;
+        final long firstSeenAt;
+        long lastSeenAt;
+        int count = 1;
+
+        BatchEntry(String content, String format, long seenAt) {
+            this.content = content;
+            this.format = format;
+            this.firstSeenAt = seenAt;
+            this.lastSeenAt = seenAt;
+        }
+
+        JSObject toJSObject() {
+            JSObject obj = new JSObject();
+            obj.put("content", content);
+            obj.put("format", format);
+            obj.put("count", count);
+            obj.put("firstSeenAt", firstSeenAt);
+            return obj;
         }
     }
 
     @Override
     public void handleOnDestroy() {
         super.handleOnDestroy();
+        keepCameraBound = false;
         stopScanning();
-        if (barcodeScanner != null) {
-            barcodeScanner.close();
+        synchronized (scannerClients) {
+            for (BarcodeScanner client : scannerClients.values()) {
+                client.close();
+            }
+            scannerClients.clear();
+        }
+        barcodeScanner = null;
+        if (barcodeIndex != null) {
+            barcodeIndex.close();
         }
         if (executorService != null) {
             executorService.shutdown();
         }
+        if (stillImageExecutor != null) {
+            stillImageExecutor.shutdown();
+        }
     }
 }
 
@@ -0,0 +1,152 @@
+package com.smartwarehouse.app.plugins;
+
+import android.os.Build;
+import android.os.Trace;
+
+import com.getcapacitor.JSObject;
+
+import org.json.JSONArray;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-stage timings of the barcode scanner pipeline, kept in fixed-size ring buffers
+ * so a full shift of scanning never grows memory. Stages are also emitted as
+ * android.os.Trace sections for systrace / Perfetto captures.
+ */
+class ScannerTimings {
+    static final String PROVIDER_ACQUIRE = "providerAcquire";
+    static final String BIND = "bind";
+    static final String FIRST_FRAME = "firstFrame";
+    static final String CROP = "crop";
+    static final String DECODE = "decode";
+    static final String RESOLVE = "resolve";
+    static final String TIME_TO_RESULT = "timeToResult";
+
+    private static final String TRACE_PREFIX = "NativeBarcodeScanner.";
+    private static final int CAPACITY = 256;
+
+    private final Map<String, Ring> rings = new LinkedHashMap<>();
+
+    synchronized void record(String stage, long durationNanos) {
+        Ring ring = rings.get(stage);
+        if (ring == null) {
+            ring = new Ring();
+            rings.put(stage, ring);
+        }
+        ring.add(durationNanos);
+    }
+
+    synchronized void reset() {
+        rings.clear();
+    }
+
+    /**
+     * Summary per stage in milliseconds: count, mean, p50, p90, p99 and max over the
+     * samples currently in the ring. Raw samples are included on request.
+     */
+    synchronized JSObject toJSObject(boolean includeSamples) {
+        JSObject stages = new JSObject();
+        for (Map.Entry<String, Ring> entry : rings.entrySet()) {
+            long[] samples = entry.getValue().snapshot();
+            Arrays.sort(samples);
+
+            JSObject summary = new JSObject();
+            summary.put("count", entry.getValue().total);
+            summary.put("window", samples.length);
+            summary.put("meanMs", toMillis(mean(samples)));
+            summary.put("p50Ms", toMillis(percentile(samples, 50)));
+            summary.put("p90Ms", toMillis(percentile(samples, 90)));
+            summary.put("p99Ms", toMillis(percentile(samples, 99)));
+            summary.put("maxMs", toMillis(samples.length > 0 ? samples[samples.length - 1] : 0));
+            if (includeSamples) {
+                JSONArray raw = new JSONArray();
+                for (long sample : entry.getValue().snapshot()) {
+                    raw.put(toMillis(sample));
+                }
+                summary.put("samplesMs", raw);
+            }
+            stages.put(entry.getKey(), summary);
+        }
+
+        JSObject result = new JSObject();
+        result.put("stages", stages);
+        result.put("device", Build.MANUFACTURER + " " + Build.MODEL);
+        result.put("sdkInt", Build.VERSION.SDK_INT);
+        return result;
+    }
+
+    static void beginSection(String stage) {
+        Trace.beginSection(TRACE_PREFIX + stage);
+    }
+
+    static void endSection() {
+        Trace.endSection();
+    }
+
+    /**
+     * Async sections can span threads (e.g. an ML Kit task); only available from API 29.
+     */
+    static void beginAsyncSection(String stage, int cookie) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(TRACE_PREFIX + stage, cookie);
+        }
+    }
+
+    static void endAsyncSection(String stage, int cookie) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(TRACE_PREFIX + stage, cookie);
+        }
+    }
+
+    private static long mean(long[] sorted) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        long sum = 0;
+        for (long sample : sorted) {
+            sum += sample;
+        }
+        return sum / sorted.length;
+    }
+
+    // Nearest-rank percentile over a sorted array
+    private static long percentile(long[] sorted, int p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+
+    private static class Ring {
+        final long[] samples = new long[CAPACITY];
+        int next = 0;
+        long total = 0;
+
+        void add(long value) {
+            samples[next] = value;
+            next = (next + 1) % CAPACITY;
+            total++;
+        }
+
+        long[] snapshot() {
+            int size = (int) Math.min(total, CAPACITY);
+            long[] copy = new long[size];
+            if (total <= CAPACITY) {
+                System.arraycopy(samples, 0, copy, 0, size);
+            } else {
+                // Oldest sample first
+                System.arraycopy(samples, next, copy, 0, CAPACITY - next);
+                System.arraycopy(samples, 0, copy, CAPACITY - next, next);
+            }
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.smartwarehouse.app.plugins;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs a vendor SDK's one-time setup on a background thread, at most once per set of
+ * credentials. Repeated initialize calls with the same key (every provisioning screen
+ * entry, plus the warm-up from MainActivity) complete immediately; a different key
+ * re-runs the setup. Requests are serialized, so a call arriving during a warm-up waits
+ * for it instead of initializing twice.
+ */
+class SdkInitializer {
+
+    interface Setup {
+        void run(Context appContext) throws Exception;
+    }
+
+    interface Callback {
+        void onComplete(boolean alreadyInitialized, Exception error);
+    }
+
+    private final String tag;
+    private final ExecutorService executor;
+    private volatile String initializedKey;
+
+    SdkInitializer(String name) {
+        this.tag = name + "SdkInitializer";
+        this.executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, name + "SdkInit"));
+    }
+
+    boolean isInitialized() {
+        return initializedKey != null;
+    }
+
+    /**
+     * Runs a task on the init thread, e.g. reading cached credentials without touching
+     * disk on the main thread before calling initialize.
+     */
+    void runInBackground(Runnable task) {
+        executor.execute(task);
+    }
+
+    void initialize(Context context, String key, Setup setup, Callback callback) {
+        Context appContext = context.getApplicationContext();
+        executor.execute(() -> {
+            if (key.equals(initializedKey)) {
+                if (callback != null) {
+                    callback.onComplete(true, null);
+                }
+                return;
+            }
+
+            long start = System.nanoTime();
+            try {
+                setup.run(appContext);
+                initializedKey = key;
+                Log.d(tag, "SDK initialized in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+                if (callback != null) {
+                    callback.onComplete(false, null);
+                }
+            } catch (Exception e) {
+                initializedKey = null;
+                Log.e(tag, "SDK initialization failed", e);
+                if (callback != null) {
+                    callback.onComplete(false, e);
+                }
+            }
+        });
+    }
+}
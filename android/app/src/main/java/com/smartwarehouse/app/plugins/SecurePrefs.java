@@ -0,0 +1,43 @@
+package com.smartwarehouse.app.plugins;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.security.crypto.EncryptedSharedPreferences;
+import androidx.security.crypto.MasterKey;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+
+/**
+ * EncryptedSharedPreferences for vendor SDK credentials, keyed by the Android Keystore.
+ * Opening involves the Keystore, so callers stay off the main thread.
+ */
+final class SecurePrefs {
+
+    private SecurePrefs() {
+    }
+
+    static SharedPreferences open(Context context, String name) throws GeneralSecurityException, IOException {
+        MasterKey masterKey = new MasterKey.Builder(context)
+            .setKeyScheme(MasterKey.KeyScheme.AES256_GCM)
+            .build();
+        return EncryptedSharedPreferences.create(
+            context,
+            name,
+            masterKey,
+            EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
+            EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM
+        );
+    }
+
+    /**
+     * Wipes a plaintext preferences file written by earlier versions.
+     */
+    static void clearPlaintext(Context context, String name) {
+        SharedPreferences legacy = context.getSharedPreferences(name, Context.MODE_PRIVATE);
+        if (!legacy.getAll().isEmpty()) {
+            legacy.edit().clear().commit();
+        }
+    }
+}
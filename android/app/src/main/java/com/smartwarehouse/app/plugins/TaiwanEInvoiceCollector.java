@@ -0,0 +1,233 @@
+package com.smartwarehouse.app.plugins;
+
+import android.graphics.Rect;
+
+import com.getcapacitor.JSObject;
+import com.google.mlkit.vision.barcode.common.Barcode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Pairs the codes printed on a Taiwan e-invoice receipt across frames.
+ *
+ * A receipt carries a left QR code (starts with the invoice number), a right QR code
+ * (starts with "**", no invoice number) and a Code 39 barcode (period + invoice number
+ * + random code). Left QR and barcode are keyed by invoice number directly; a right QR
+ * is attached to the left QR beside it in the same frame, or to the most recently seen
+ * invoice that is still missing one.
+ */
+class TaiwanEInvoiceCollector {
+    private static final Pattern LEFT_QR_PATTERN = Pattern.compile("^[A-Z]{2}\\d{8}\\d{7}\\d{4}");
+    private static final Pattern BARCODE_PATTERN = Pattern.compile("^\\d{5}[A-Z]{2}\\d{8}\\d{4}$");
+    private static final String RIGHT_QR_PREFIX = "**";
+    private static final long PAIRING_WINDOW_MS = 3000;
+    private static final int MAX_PENDING = 8;
+
+    private final Map<String, PendingInvoice> pending = new LinkedHashMap<>();
+    private final Map<String, JSObject> completed = new LinkedHashMap<>();
+    private String orphanRightQr;
+    private long orphanRightSeenAt;
+
+    void reset() {
+        pending.clear();
+        completed.clear();
+        orphanRightQr = null;
+        orphanRightSeenAt = 0;
+    }
+
+    /**
+     * Feeds one decoded frame and returns the invoices completed by it. An invoice is
+     * only ever returned once.
+     */
+    List<JSObject> accept(List<Barcode> barcodes, long now) {
+        List<Barcode> lefts = new ArrayList<>();
+        List<Barcode> rights = new ArrayList<>();
+
+        for (Barcode barcode : barcodes) {
+            String raw = barcode.getRawValue();
+            if (raw == null || raw.isEmpty()) {
+                continue;
+            }
+            if (barcode.getFormat() == Barcode.FORMAT_QR_CODE) {
+                if (raw.startsWith(RIGHT_QR_PREFIX)) {
+                    rights.add(barcode);
+                } else if (LEFT_QR_PATTERN.matcher(raw).lookingAt()) {
+                    lefts.add(barcode);
+                }
+            } else if (BARCODE_PATTERN.matcher(raw).matches()) {
+                PendingInvoice invoice = pendingFor(raw.substring(5, 15), now);
+                invoice.barcode = raw;
+            }
+        }
+
+        sortLeftToRight(lefts);
+        sortLeftToRight(rights);
+
+        List<PendingInvoice> frameInvoices = new ArrayList<>();
+        for (Barcode left : lefts) {
+            String raw = left.getRawValue();
+            PendingInvoice invoice = pendingFor(raw.substring(0, 10), now);
+            invoice.leftQr = raw;
+            frameInvoices.add(invoice);
+        }
+
+        for (Barcode right : rights) {
+            PendingInvoice target = nearestLeftOf(right, lefts, frameInvoices);
+            if (target == null) {
+                target = mostRecentMissingRight(now);
+            }
+            if (target != null) {
+                target.rightQr = right.getRawValue();
+            } else {
+                orphanRightQr = right.getRawValue();
+                orphanRightSeenAt = now;
+            }
+        }
+
+        // A right QR seen before its left QR is attached to the next invoice that shows up
+        if (orphanRightQr != null) {
+            if (now - orphanRightSeenAt > PAIRING_WINDOW_MS) {
+                orphanRightQr = null;
+            } else {
+                PendingInvoice target = mostRecentMissingRight(now);
+                if (target != null && target.leftQr != null) {
+                    target.rightQr = orphanRightQr;
+                    orphanRightQr = null;
+                }
+            }
+        }
+
+        List<JSObject> done = new ArrayList<>();
+        Iterator<PendingInvoice> it = pending.values().iterator();
+        while (it.hasNext()) {
+            PendingInvoice invoice = it.next();
+            if (invoice.leftQr != null && invoice.rightQr != null) {
+                it.remove();
+                if (!completed.containsKey(invoice.invoiceNumber)) {
+                    JSObject payload = invoice.toJSObject();
+                    completed.put(invoice.invoiceNumber, payload);
+                    done.add(payload);
+                }
+            }
+        }
+        return done;
+    }
+
+    List<JSObject> getCompleted() {
+        return new ArrayList<>(completed.values());
+    }
+
+    private PendingInvoice pendingFor(String invoiceNumber, long now) {
+        PendingInvoice invoice = pending.get(invoiceNumber);
+        if (invoice == null) {
+            if (pending.size() >= MAX_PENDING) {
+                Iterator<String> oldest = pending.keySet().iterator();
+                oldest.next();
+                oldest.remove();
+            }
+            invoice = new PendingInvoice(invoiceNumber);
+            pending.put(invoiceNumber, invoice);
+        }
+        invoice.lastSeenAt = now;
+        return invoice;
+    }
+
+    private PendingInvoice nearestLeftOf(Barcode right, List<Barcode> lefts, List<PendingInvoice> invoices) {
+        Rect rightBox = right.getBoundingBox();
+        PendingInvoice best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int i = 0; i < lefts.size(); i++) {
+            Rect leftBox = lefts.get(i).getBoundingBox();
+            if (rightBox == null || leftBox == null) {
+                // Without geometry, pair in order of appearance with the invoices still missing a right QR
+                return firstMissingRight(invoices);
+            }
+            int distance = rightBox.left - leftBox.right;
+            if (distance >= -leftBox.width() / 2 && distance < bestDistance && invoices.get(i).rightQr == null) {
+                best = invoices.get(i);
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    private static PendingInvoice firstMissingRight(List<PendingInvoice> invoices) {
+        for (PendingInvoice invoice : invoices) {
+            if (invoice.rightQr == null) {
+                return invoice;
+            }
+        }
+        return null;
+    }
+
+    private PendingInvoice mostRecentMissingRight(long now) {
+        PendingInvoice best = null;
+        for (PendingInvoice invoice : pending.values()) {
+            if (invoice.rightQr == null && now - invoice.lastSeenAt <= PAIRING_WINDOW_MS
+                && (best == null || invoice.lastSeenAt >= best.lastSeenAt)) {
+                best = invoice;
+            }
+        }
+        return best;
+    }
+
+    private static void sortLeftToRight(List<Barcode> barcodes) {
+        Collections.sort(barcodes, Comparator.comparingInt(b -> {
+            Rect box = b.getBoundingBox();
+            return box != null ? box.left : 0;
+        }));
+    }
+
+    private static class PendingInvoice {
+        final String invoiceNumber;
+        String leftQr;
+        String rightQr;
+        String barcode;
+        long lastSeenAt;
+
+        PendingInvoice(String invoiceNumber) {
+            this.invoiceNumber = invoiceNumber;
+        }
+
+        /**
+         * Combined payload; the fixed-width header of the left QR is parsed here so JS does
+         * not need a round trip for the common fields. Full decoding stays in
+         * lib/taiwan-einvoice-decoder.ts.
+         */
+        JSObject toJSObject() {
+            JSObject obj = new JSObject();
+            obj.put("hasContent", true);
+            obj.put("invoiceNumber", invoiceNumber);
+            obj.put("leftQRCode", leftQr);
+            obj.put("rightQRCode", rightQr);
+            obj.put("barcode", barcode != null ? barcode : "");
+
+            // [number 10][ROC date 7][random 4][sales hex 8][total hex 8][buyer 8][seller 8]
+            String rocDate = leftQr.substring(10, 17);
+            int year = Integer.parseInt(rocDate.substring(0, 3)) + 1911;
+            obj.put("invoiceDate", year + "-" + rocDate.substring(3, 5) + "-" + rocDate.substring(5, 7));
+            obj.put("randomCode", leftQr.substring(17, 21));
+            if (leftQr.length() >= 53) {
+                try {
+                    obj.put("salesAmount", Long.parseLong(leftQr.substring(21, 29), 16));
+                    obj.put("totalAmount", Long.parseLong(leftQr.substring(29, 37), 16));
+                } catch (NumberFormatException e) {
+                    // Amounts are optional for pairing; leave them to the JS decoder
+                }
+                String buyerTaxId = leftQr.substring(37, 45);
+                if (!"00000000".equals(buyerTaxId)) {
+                    obj.put("buyerTaxId", buyerTaxId);
+                }
+                obj.put("sellerTaxId", leftQr.substring(45, 53));
+            }
+            return obj;
+        }
+    }
+}
@@ -18,7 +18,9 @@ public class TuyaProvisioningPlugin extends Plugin {
 
     private static final String TAG = "TuyaProvisioningPlugin";
     private static final int REQUEST_CODE_ACTIVATOR = 1001;
-    private boolean isInitialized = false;
+    // Plaintext credentials cache of earlier versions; nothing is cached any more
+    private static final String LEGACY_PREFS = "tuya_sdk_config";
+    private static final SdkInitializer SDK = new SdkInitializer("Tuya");
     private String currentToken = null;
     private String currentHouseholdId = null;
     private String currentTuyaHomeId = null;
@@ -37,28 +39,35 @@ public class TuyaProvisioningPlugin extends Plugin {
             return;
         }
 
-        try {
-            Context context = getContext();
-            if (context == null) {
-                call.reject("Failed to get Android context");
+        Context context = getContext();
+        if (context == null) {
+            call.reject("Failed to get Android context");
+            return;
+        }
+
+        Context appContext = context.getApplicationContext();
+        SDK.runInBackground(() -> SecurePrefs.clearPlaintext(appContext, LEGACY_PREFS));
+        SDK.initialize(context, appKey + "|" + appSecret, TuyaProvisioningPlugin::initSdk, (alreadyInitialized, error) -> {
+            if (error != null) {
+                call.reject("Failed to initialize Tuya SDK: " + error.getMessage());
                 return;
             }
 
-            // TODO: Initialize Tuya SDK 6.11.0
-            // The SDK initialization API may have changed in 6.11.0
-            // For now, mark as initialized
-            isInitialized = true;
-
             JSObject data = new JSObject();
             data.put("initialized", true);
             data.put("native", true);
+            data.put("alreadyInitialized", alreadyInitialized);
             data.put("loggedIn", false); // Will be checked via API
             data.put("message", "Tuya SDK initialization placeholder - needs 6.11.0 API update");
             call.resolve(data);
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to initialize Tuya SDK", e);
-            call.reject("Failed to initialize Tuya SDK: " + e.getMessage());
-        }
+        });
+    }
+
+    private static void initSdk(Context appContext) {
+        // TODO: Initialize Tuya SDK 6.11.0
+        // The SDK initialization API may have changed in 6.11.0
+        // For now, mark as initialized. There is deliberately no warmUp (and no cached
+        // credentials) until this performs real setup
     }
 
     @PluginMethod
@@ -82,7 +91,7 @@ public class TuyaProvisioningPlugin extends Plugin {
 
     @PluginMethod
     public void startProvisioning(PluginCall call) {
-        if (!isInitialized) {
+        if (!SDK.isInitialized()) {
             call.reject("Tuya SDK not initialized. Call initialize() first.");
             return;
         }
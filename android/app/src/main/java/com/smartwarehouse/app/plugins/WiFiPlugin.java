@@ -1,13 +1,19 @@
 package com.smartwarehouse.app.plugins;
 
 import android.Manifest;
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.pm.PackageManager;
 import android.net.wifi.ScanResult;
 import android.net.wifi.WifiConfiguration;
 import android.net.wifi.WifiInfo;
 import android.net.wifi.WifiManager;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.core.app.ActivityCompat;
@@ -23,8 +29,15 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 @CapacitorPlugin(name = "WiFi")
 public class WiFiPlugin extends Plugin {
@@ -32,12 +45,86 @@ public class WiFiPlugin extends Plugin {
     private static final String TAG = "WiFiPlugin";
     private static final int LOCATION_PERMISSION_REQUEST_CODE = 1001;
 
+    private static final long DEFAULT_SCAN_TIMEOUT_MS = 10000;
+    private static final String EVENT_NETWORKS_CHANGED = "networksChanged";
+    // One watch scan every 40s uses 3 of the 4 scans allowed per 2 minutes
+    private static final long DEFAULT_WATCH_INTERVAL_MS = 40000;
+    private static final int DEFAULT_RSSI_THRESHOLD = 5;
+    // Android 9+ allows a foreground app 4 scan requests per rolling 2 minutes
+    private static final int SCAN_BUDGET = 4;
+    private static final long SCAN_BUDGET_WINDOW_MS = 120000;
+    // Watch scans leave this many requests of the budget to explicit scanNetworks calls
+    private static final int WATCH_RESERVED_SCANS = 1;
+    private static final long DEFAULT_MAX_CACHE_AGE_MS = 5000;
+
     private WifiManager wifiManager;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<PendingScan> pendingScans = new ArrayList<>();
+
+    // Scan cache and throttle budget, main thread only. Times are SystemClock.elapsedRealtime()
+    private final ArrayDeque<Long> scanRequestTimes = new ArrayDeque<>();
+    private JSONArray cachedNetworks;
+    private long cachedAtMs;
+
+    // Network watch state, main thread only. Keyed by BSSID (SSID when the BSSID is hidden)
+    private final Map<String, JSONObject> watchedNetworks = new HashMap<>();
+    private boolean watching = false;
+    private long watchIntervalMs = DEFAULT_WATCH_INTERVAL_MS;
+    private int watchRssiThreshold = DEFAULT_RSSI_THRESHOLD;
+
+    private final Runnable watchScan = new Runnable() {
+        @Override
+        public void run() {
+            if (!watching) {
+                return;
+            }
+            // Results arrive through scanResultsReceiver like any other scan. Short custom
+            // intervals skip ticks rather than use up the slot kept for foreground scans
+            if (pendingScans.isEmpty() && remainingScanBudget() > WATCH_RESERVED_SCANS) {
+                startScanWithinBudget();
+            }
+            mainHandler.postDelayed(this, watchIntervalMs);
+        }
+    };
+
+    private final BroadcastReceiver scanResultsReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            // EXTRA_RESULTS_UPDATED is false when the scan failed and the old results were kept
+            boolean updated = intent.getBooleanExtra(WifiManager.EXTRA_RESULTS_UPDATED, false);
+            if (updated) {
+                refreshCache(SystemClock.elapsedRealtime());
+            }
+            resolvePendingScans(!updated);
+            if (watching && updated) {
+                publishNetworkDelta();
+            }
+        }
+    };
 
     @Override
     public void load() {
         super.load();
         wifiManager = (WifiManager) getContext().getApplicationContext().getSystemService(Context.WIFI_SERVICE);
+        ContextCompat.registerReceiver(
+            getContext(),
+            scanResultsReceiver,
+            new IntentFilter(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION),
+            ContextCompat.RECEIVER_NOT_EXPORTED
+        );
+    }
+
+    @Override
+    public void handleOnDestroy() {
+        super.handleOnDestroy();
+        watching = false;
+        mainHandler.removeCallbacksAndMessages(null);
+        pendingScans.clear();
+        try {
+            getContext().unregisterReceiver(scanResultsReceiver);
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Scan results receiver was not registered", e);
+        }
     }
 
     @PluginMethod
@@ -86,78 +173,337 @@ public class WiFiPlugin extends Plugin {
                 return;
             }
 
-            // Start WiFi scan
-            boolean scanStarted = wifiManager.startScan();
-            if (!scanStarted) {
-                call.reject("Failed to start WiFi scan");
-                return;
-            }
+            long timeoutMs = call.getLong("timeout", DEFAULT_SCAN_TIMEOUT_MS);
+            long maxAgeMs = call.getLong("maxAge", DEFAULT_MAX_CACHE_AGE_MS);
+            mainHandler.post(() -> requestScan(call, timeoutMs, maxAgeMs));
+        } catch (Exception e) {
+            Log.e(TAG, "Error scanning WiFi networks", e);
+            call.reject("Failed to scan WiFi networks: " + e.getMessage());
+        }
+    }
 
-            // Wait a bit for scan to complete
-            try {
-                Thread.sleep(2000); // Wait 2 seconds for scan to complete
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+    /**
+     * Starts a scan and parks the call until SCAN_RESULTS_AVAILABLE_ACTION arrives or the
+     * timeout fires. Runs on the main thread, like the broadcast receiver, so pendingScans
+     * needs no locking. Calls arriving while a scan is in flight share its results, and
+     * results younger than maxAgeMs are returned without spending a scan.
+     */
+    private void requestScan(PluginCall call, long timeoutMs, long maxAgeMs) {
+        if (maxAgeMs > 0 && cachedNetworks != null && SystemClock.elapsedRealtime() - cachedAtMs <= maxAgeMs) {
+            resolveScan(call, true);
+            return;
+        }
+
+        boolean scanInFlight = !pendingScans.isEmpty();
+        PendingScan pending = new PendingScan(call, timeoutMs);
+        pendingScans.add(pending);
+        mainHandler.postDelayed(pending, timeoutMs);
+        if (scanInFlight) {
+            return;
+        }
+
+        if (!startScanWithinBudget()) {
+            // Out of scan budget or the radio is busy; the last scan results are still valid
+            Log.w(TAG, "WiFi scan request was not accepted, returning cached results");
+            resolvePendingScans(true);
+        }
+    }
+
+    /**
+     * Requests a scan only when the OS would accept it, so a throttled request never
+     * fails noisily. Accepted requests are recorded against the rolling budget.
+     */
+    private boolean startScanWithinBudget() {
+        if (scanRetryAfterMs() > 0) {
+            return false;
+        }
+        if (!wifiManager.startScan()) {
+            return false;
+        }
+        scanRequestTimes.addLast(SystemClock.elapsedRealtime());
+        return true;
+    }
+
+    // 0 when a scan can be requested now, otherwise how long until the oldest request leaves the window
+    private long scanRetryAfterMs() {
+        if (!scanThrottleApplies()) {
+            return 0;
+        }
+
+        long now = SystemClock.elapsedRealtime();
+        while (!scanRequestTimes.isEmpty() && now - scanRequestTimes.peekFirst() >= SCAN_BUDGET_WINDOW_MS) {
+            scanRequestTimes.pollFirst();
+        }
+        if (scanRequestTimes.size() < SCAN_BUDGET) {
+            return 0;
+        }
+        return scanRequestTimes.peekFirst() + SCAN_BUDGET_WINDOW_MS - now;
+    }
+
+    private int remainingScanBudget() {
+        if (!scanThrottleApplies()) {
+            return SCAN_BUDGET;
+        }
+        return scanRetryAfterMs() > 0 ? 0 : SCAN_BUDGET - scanRequestTimes.size();
+    }
+
+    private boolean scanThrottleApplies() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.P) {
+            return false;
+        }
+        // Developers can switch throttling off in developer options
+        return Build.VERSION.SDK_INT < Build.VERSION_CODES.R || wifiManager.isScanThrottleEnabled();
+    }
+
+    /**
+     * Rebuilds the cached network list from the OS results. capturedAtMs is the time of a
+     * scan this process saw complete, or 0 to derive it from the newest ScanResult timestamp
+     * (results left behind by scans of other apps or before this process started).
+     */
+    private void refreshCache(long capturedAtMs) {
+        if (ActivityCompat.checkSelfPermission(getContext(), Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
+            return;
+        }
+
+        List<ScanResult> scanResults = wifiManager.getScanResults();
+        if (capturedAtMs == 0) {
+            for (ScanResult result : scanResults) {
+                // ScanResult.timestamp is microseconds since boot
+                capturedAtMs = Math.max(capturedAtMs, result.timestamp / 1000);
             }
+        }
+        cachedNetworks = buildNetworks(scanResults);
+        cachedAtMs = capturedAtMs;
+    }
+
+    private void resolvePendingScans(boolean fromCache) {
+        List<PendingScan> scans = new ArrayList<>(pendingScans);
+        pendingScans.clear();
+        for (PendingScan pending : scans) {
+            mainHandler.removeCallbacks(pending);
+            resolveScan(pending.call, fromCache);
+        }
+    }
 
-            // Get scan results
+    private void resolveScan(PluginCall call, boolean fromCache) {
+        try {
             if (ActivityCompat.checkSelfPermission(getContext(), Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
                 call.reject("Location permission is required");
                 return;
             }
 
-            List<ScanResult> scanResults = wifiManager.getScanResults();
-            JSONArray networks = new JSONArray();
+            if (cachedNetworks == null) {
+                refreshCache(0);
+            }
+
+            JSONArray networks = cachedNetworks != null ? cachedNetworks : new JSONArray();
+            Set<String> hotspotVendors = requestedHotspotVendors(call);
 
-            // Get currently connected network
-            WifiInfo wifiInfo = wifiManager.getConnectionInfo();
-            String currentSSID = wifiInfo.getSSID();
-            if (currentSSID != null && currentSSID.startsWith("\"")) {
-                currentSSID = currentSSID.substring(1, currentSSID.length() - 1);
+            JSObject result = new JSObject();
+            if (hotspotVendors != null) {
+                JSONArray hotspots = DeviceHotspots.filter(networks, hotspotVendors);
+                result.put("networks", hotspots);
+                result.put("groups", DeviceHotspots.group(hotspots));
+            } else {
+                result.put("networks", networks);
+            }
+            result.put("fromCache", fromCache);
+            result.put("ageMs", cachedAtMs > 0 ? SystemClock.elapsedRealtime() - cachedAtMs : -1);
+            result.put("remainingScans", remainingScanBudget());
+            result.put("retryAfterMs", scanRetryAfterMs());
+            call.resolve(result);
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading WiFi scan results", e);
+            call.reject("Failed to scan WiFi networks: " + e.getMessage());
+        }
+    }
+
+    /**
+     * deviceHotspots: true for every known vendor, or a list such as ["midea", "tuya"].
+     * Null when the option is absent and every network should be returned.
+     */
+    private Set<String> requestedHotspotVendors(PluginCall call) {
+        Object option = call.getData().opt("deviceHotspots");
+        if (Boolean.TRUE.equals(option)) {
+            return DeviceHotspots.vendors();
+        }
+        if (option instanceof JSONArray) {
+            JSONArray list = (JSONArray) option;
+            Set<String> vendors = new HashSet<>();
+            for (int i = 0; i < list.length(); i++) {
+                vendors.add(list.optString(i).toLowerCase(Locale.ROOT));
             }
+            return vendors;
+        }
+        return null;
+    }
 
-            for (ScanResult result : scanResults) {
-                try {
-                    JSONObject network = new JSONObject();
-                    network.put("ssid", result.SSID);
-                    network.put("bssid", result.BSSID);
-                    network.put("signalStrength", result.level); // dBm
-                    network.put("frequency", result.frequency);
-                    
-                    // Determine security type
-                    String security = "none";
-                    if (result.capabilities != null) {
-                        if (result.capabilities.contains("WPA3")) {
-                            security = "wpa3";
-                        } else if (result.capabilities.contains("WPA2")) {
-                            security = "wpa2";
-                        } else if (result.capabilities.contains("WPA")) {
-                            security = "wpa";
-                        } else if (result.capabilities.contains("WEP")) {
-                            security = "wep";
-                        }
+    private JSONArray buildNetworks(List<ScanResult> scanResults) {
+        JSONArray networks = new JSONArray();
+
+        // Get currently connected network
+        WifiInfo wifiInfo = wifiManager.getConnectionInfo();
+        String currentSSID = wifiInfo.getSSID();
+        if (currentSSID != null && currentSSID.startsWith("\"")) {
+            currentSSID = currentSSID.substring(1, currentSSID.length() - 1);
+        }
+
+        for (ScanResult result : scanResults) {
+            try {
+                JSONObject network = new JSONObject();
+                network.put("ssid", result.SSID);
+                network.put("bssid", result.BSSID);
+                network.put("signalStrength", result.level); // dBm
+                network.put("frequency", result.frequency);
+                
+                // Determine security type
+                String security = "none";
+                if (result.capabilities != null) {
+                    if (result.capabilities.contains("WPA3")) {
+                        security = "wpa3";
+                    } else if (result.capabilities.contains("WPA2")) {
+                        security = "wpa2";
+                    } else if (result.capabilities.contains("WPA")) {
+                        security = "wpa";
+                    } else if (result.capabilities.contains("WEP")) {
+                        security = "wep";
                     }
-                    network.put("security", security);
-                    
-                    // Check if this is the currently connected network
-                    boolean isConnected = result.SSID.equals(currentSSID);
-                    network.put("isConnected", isConnected);
-
-                    networks.put(network);
-                } catch (JSONException e) {
-                    Log.e(TAG, "Error creating network JSON", e);
                 }
+                network.put("security", security);
+                
+                // Check if this is the currently connected network
+                boolean isConnected = result.SSID.equals(currentSSID);
+                network.put("isConnected", isConnected);
+
+                networks.put(network);
+            } catch (JSONException e) {
+                Log.e(TAG, "Error creating network JSON", e);
             }
+        }
+        return networks;
+    }
 
-            JSObject result = new JSObject();
-            result.put("networks", networks);
-            call.resolve(result);
+    /**
+     * Streams changes to the visible network list as networksChanged events
+     * ({ added, updated, removed }) until stopNetworkWatch. Resolves with the current
+     * list, which is the baseline the deltas apply to. Scans started by other apps or
+     * by scanNetworks also produce deltas.
+     */
+    @PluginMethod
+    public void startNetworkWatch(PluginCall call) {
+        if (!checkLocationPermission()) {
+            call.reject("Location permission is required to scan WiFi networks");
+            return;
+        }
+        if (!wifiManager.isWifiEnabled()) {
+            call.reject("WiFi is not enabled. Please enable WiFi and try again.");
+            return;
+        }
+
+        long intervalMs = call.getLong("intervalMs", DEFAULT_WATCH_INTERVAL_MS);
+        int rssiThreshold = call.getInt("rssiThreshold", DEFAULT_RSSI_THRESHOLD);
+        mainHandler.post(() -> {
+            try {
+                watchIntervalMs = Math.max(1000, intervalMs);
+                watchRssiThreshold = Math.max(1, rssiThreshold);
+
+                if (cachedNetworks == null) {
+                    refreshCache(0);
+                }
+                JSONArray networks = cachedNetworks != null ? cachedNetworks : new JSONArray();
+                watchedNetworks.clear();
+                for (int i = 0; i < networks.length(); i++) {
+                    JSONObject network = networks.getJSONObject(i);
+                    watchedNetworks.put(networkKey(network), network);
+                }
+
+                watching = true;
+                mainHandler.removeCallbacks(watchScan);
+                mainHandler.post(watchScan);
+
+                JSObject result = new JSObject();
+                result.put("networks", networks);
+                call.resolve(result);
+            } catch (Exception e) {
+                Log.e(TAG, "Error starting network watch", e);
+                call.reject("Failed to start network watch: " + e.getMessage());
+            }
+        });
+    }
+
+    @PluginMethod
+    public void stopNetworkWatch(PluginCall call) {
+        mainHandler.post(() -> {
+            watching = false;
+            mainHandler.removeCallbacks(watchScan);
+            watchedNetworks.clear();
+            call.resolve();
+        });
+    }
+
+    private void publishNetworkDelta() {
+        if (cachedNetworks == null) {
+            return;
+        }
+
+        try {
+            JSONArray networks = cachedNetworks;
+            JSONArray added = new JSONArray();
+            JSONArray updated = new JSONArray();
+            Set<String> seen = new HashSet<>();
+
+            for (int i = 0; i < networks.length(); i++) {
+                JSONObject network = networks.getJSONObject(i);
+                String key = networkKey(network);
+                if (!seen.add(key)) {
+                    continue;
+                }
+
+                JSONObject previous = watchedNetworks.get(key);
+                if (previous == null) {
+                    added.put(network);
+                    watchedNetworks.put(key, network);
+                } else if (Math.abs(network.optInt("signalStrength") - previous.optInt("signalStrength")) >= watchRssiThreshold
+                    || network.optBoolean("isConnected") != previous.optBoolean("isConnected")) {
+                    // Small RSSI jitter is not reported; the stored value stays the last one sent
+                    updated.put(network);
+                    watchedNetworks.put(key, network);
+                }
+            }
+
+            JSONArray removed = new JSONArray();
+            Iterator<Map.Entry<String, JSONObject>> iterator = watchedNetworks.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, JSONObject> entry = iterator.next();
+                if (!seen.contains(entry.getKey())) {
+                    JSONObject gone = new JSONObject();
+                    gone.put("ssid", entry.getValue().optString("ssid"));
+                    gone.put("bssid", entry.getValue().optString("bssid"));
+                    removed.put(gone);
+                    iterator.remove();
+                }
+            }
+
+            if (added.length() == 0 && updated.length() == 0 && removed.length() == 0) {
+                return;
+            }
+
+            JSObject event = new JSObject();
+            event.put("added", added);
+            event.put("updated", updated);
+            event.put("removed", removed);
+            event.put("timestamp", System.currentTimeMillis());
+            notifyListeners(EVENT_NETWORKS_CHANGED, event);
         } catch (Exception e) {
-            Log.e(TAG, "Error scanning WiFi networks", e);
-            call.reject("Failed to scan WiFi networks: " + e.getMessage());
+            Log.e(TAG, "Error computing network delta", e);
         }
     }
 
+    private static String networkKey(JSONObject network) {
+        String bssid = network.optString("bssid", "");
+        return bssid.isEmpty() ? network.optString("ssid") : bssid;
+    }
+
     @PluginMethod
     public void checkPermission(PluginCall call) {
         boolean granted = checkLocationPermission();
@@ -299,4 +645,23 @@ public class WiFiPlugin extends Plugin {
         }
         return true; // Permission granted by default on older Android versions
     }
-}
+
+    private class PendingScan implements Runnable {
+        final PluginCall call;
+        final long timeoutMs;
+
+        PendingScan(PluginCall call, long timeoutMs) {
+            this.call = call;
+            this.timeoutMs = timeoutMs;
+        }
+
+        // Timeout: the scan never reported back, so answer with whatever the OS has cached
+        @Override
+        public void run() {
+            if (pendingScans.remove(this)) {
+                Log.w(TAG, "WiFi scan timed out after " + timeoutMs + "ms, returning cached results");
+                resolveScan(call, true);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,194 @@
+package com.smartwarehouse.benchmark;
+
+import static org.junit.Assume.assumeFalse;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.util.Log;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.mlkit.vision.barcode.BarcodeScanner;
+import com.google.mlkit.vision.barcode.BarcodeScannerOptions;
+import com.google.mlkit.vision.barcode.BarcodeScanning;
+import com.google.mlkit.vision.barcode.common.Barcode;
+import com.google.mlkit.vision.common.InputImage;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Replays the recorded corpus through ML Kit for every combination of format set,
+ * analysis resolution and scan window. BenchmarkRule measures steady-state decode time;
+ * an extra pass over the corpus records latency percentiles, frames/sec and hit rate per
+ * format, written as JSON next to the benchmark output.
+ */
+@RunWith(Parameterized.class)
+public class BarcodeDecodeBenchmark {
+    private static final String TAG = "BarcodeDecodeBenchmark";
+
+    @Parameterized.Parameters(name = "{0}_{1}px_{2}")
+    public static Collection<Object[]> parameters() {
+        List<Object[]> params = new ArrayList<>();
+        for (ScannerConfigurations.FormatSet formats : ScannerConfigurations.FormatSet.values()) {
+            for (int maxLongEdge : new int[]{0, 1280, 640}) {
+                for (ScannerConfigurations.Crop crop : ScannerConfigurations.Crop.values()) {
+                    params.add(new Object[]{formats, maxLongEdge, crop});
+                }
+            }
+        }
+        return params;
+    }
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private final ScannerConfigurations.FormatSet formats;
+    private final int maxLongEdge;
+    private final ScannerConfigurations.Crop crop;
+
+    private List<FrameCorpus.Frame> corpus;
+    private BarcodeScanner scanner;
+
+    public BarcodeDecodeBenchmark(ScannerConfigurations.FormatSet formats, int maxLongEdge, ScannerConfigurations.Crop crop) {
+        this.formats = formats;
+        this.maxLongEdge = maxLongEdge;
+        this.crop = crop;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        Context testContext = InstrumentationRegistry.getInstrumentation().getContext();
+        corpus = FrameCorpus.load(testContext);
+        assumeFalse("Corpus is empty; see android/benchmark/README.md", corpus.isEmpty());
+
+        scanner = BarcodeScanning.getClient(new BarcodeScannerOptions.Builder()
+            .setBarcodeFormats(formats.mask)
+            .build());
+    }
+
+    @After
+    public void tearDown() {
+        if (scanner != null) {
+            scanner.close();
+        }
+    }
+
+    @Test
+    public void decode() throws Exception {
+        // Frames are scaled up front, as the camera would deliver them; the per-frame
+        // plane copy and the detector are measured together, like the analyzer runs them
+        List<FrameCorpus.Frame> frames = new ArrayList<>();
+        for (FrameCorpus.Frame frame : corpus) {
+            frames.add(ScannerConfigurations.scale(frame, maxLongEdge));
+        }
+
+        writeReport(measureCorpusPass(frames));
+
+        BenchmarkState state = benchmarkRule.getState();
+        int index = 0;
+        while (state.keepRunning()) {
+            Tasks.await(scanner.process(ScannerConfigurations.toInputImage(frames.get(index), crop)));
+            index = (index + 1) % frames.size();
+        }
+    }
+
+    private JSONObject measureCorpusPass(List<FrameCorpus.Frame> frames) throws Exception {
+        long[] latencies = new long[frames.size()];
+        Map<String, int[]> hitsByFormat = new LinkedHashMap<>();
+        int expectedTotal = 0;
+        int hitTotal = 0;
+
+        long passStart = System.nanoTime();
+        for (int i = 0; i < frames.size(); i++) {
+            long start = System.nanoTime();
+            InputImage input = ScannerConfigurations.toInputImage(frames.get(i), crop);
+            List<Barcode> barcodes = Tasks.await(scanner.process(input));
+            latencies[i] = System.nanoTime() - start;
+
+            Set<String> found = new HashSet<>();
+            for (Barcode barcode : barcodes) {
+                found.add(ScannerConfigurations.formatName(barcode.getFormat()) + ":" + barcode.getRawValue());
+            }
+            for (FrameCorpus.Expected expected : corpus.get(i).expected) {
+                int[] counts = hitsByFormat.get(expected.format);
+                if (counts == null) {
+                    counts = new int[2];
+                    hitsByFormat.put(expected.format, counts);
+                }
+                boolean hit = found.contains(expected.format + ":" + expected.content);
+                counts[0] += hit ? 1 : 0;
+                counts[1]++;
+                hitTotal += hit ? 1 : 0;
+                expectedTotal++;
+            }
+        }
+        long passNanos = System.nanoTime() - passStart;
+
+        Arrays.sort(latencies);
+        JSONObject report = new JSONObject();
+        report.put("formats", formats.name());
+        report.put("maxLongEdge", maxLongEdge);
+        report.put("crop", crop.name());
+        report.put("frames", frames.size());
+        report.put("framesPerSecond", frames.size() / (passNanos / 1e9));
+        report.put("p50Ms", percentile(latencies, 50) / 1e6);
+        report.put("p90Ms", percentile(latencies, 90) / 1e6);
+        report.put("p99Ms", percentile(latencies, 99) / 1e6);
+        report.put("hitRate", expectedTotal > 0 ? hitTotal / (double) expectedTotal : 0);
+
+        JSONObject perFormat = new JSONObject();
+        for (Map.Entry<String, int[]> entry : hitsByFormat.entrySet()) {
+            int[] counts = entry.getValue();
+            perFormat.put(entry.getKey(), counts[0] / (double) counts[1]);
+        }
+        report.put("hitRateByFormat", perFormat);
+        return report;
+    }
+
+    private void writeReport(JSONObject report) throws Exception {
+        Log.i(TAG, report.toString());
+
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        String outputDir = arguments.getString("additionalTestOutputDir");
+        File dir = outputDir != null
+            ? new File(outputDir)
+            : InstrumentationRegistry.getInstrumentation().getTargetContext().getExternalFilesDir(null);
+        if (dir == null) {
+            return;
+        }
+
+        String name = "barcode-decode_" + formats.name() + "_" + maxLongEdge + "px_" + crop.name() + ".json";
+        try (FileOutputStream out = new FileOutputStream(new File(dir, name))) {
+            out.write(report.toString(2).getBytes("UTF-8"));
+        }
+    }
+
+    // Nearest-rank percentile over a sorted array
+    private static long percentile(long[] sorted, int p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+}
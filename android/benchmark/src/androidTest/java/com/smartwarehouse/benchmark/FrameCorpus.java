@@ -0,0 +1,126 @@
+package com.smartwarehouse.benchmark;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Recorded frames and still images under assets/corpus, described by corpus/manifest.json:
+ *
+ * <pre>
+ * { "frames": [
+ *   { "file": "frames/shelf_001.nv21", "type": "nv21", "width": 1280, "height": 720,
+ *     "rotation": 90, "expected": [ { "format": "EAN_13", "content": "4710088..." } ] },
+ *   { "file": "images/receipt_001.jpg", "type": "image",
+ *     "expected": [ { "format": "QR_CODE", "content": "AB12345678..." } ] } ] }
+ * </pre>
+ *
+ * NV21 frames are raw analysis buffers in sensor orientation; rotation is the
+ * ImageInfo rotation reported by CameraX when the frame was captured.
+ */
+final class FrameCorpus {
+    private static final String ROOT = "corpus/";
+
+    static final class Expected {
+        final String format;
+        final String content;
+
+        Expected(String format, String content) {
+            this.format = format;
+            this.content = content;
+        }
+    }
+
+    static final class Frame {
+        final String name;
+        final boolean isNv21;
+        final byte[] nv21;
+        final Bitmap bitmap;
+        final int width;
+        final int height;
+        final int rotation;
+        final List<Expected> expected;
+
+        Frame(String name, byte[] nv21, Bitmap bitmap, int width, int height, int rotation, List<Expected> expected) {
+            this.name = name;
+            this.isNv21 = nv21 != null;
+            this.nv21 = nv21;
+            this.bitmap = bitmap;
+            this.width = width;
+            this.height = height;
+            this.rotation = rotation;
+            this.expected = expected;
+        }
+    }
+
+    private FrameCorpus() {
+    }
+
+    static List<Frame> load(Context context) throws IOException, JSONException {
+        AssetManager assets = context.getAssets();
+        JSONObject manifest = new JSONObject(new String(readAll(assets.open(ROOT + "manifest.json")), "UTF-8"));
+        JSONArray entries = manifest.optJSONArray("frames");
+        if (entries == null) {
+            return Collections.emptyList();
+        }
+
+        List<Frame> frames = new ArrayList<>();
+        for (int i = 0; i < entries.length(); i++) {
+            JSONObject entry = entries.getJSONObject(i);
+            String file = entry.getString("file");
+            byte[] bytes = readAll(assets.open(ROOT + file));
+
+            List<Expected> expected = new ArrayList<>();
+            JSONArray codes = entry.optJSONArray("expected");
+            if (codes != null) {
+                for (int j = 0; j < codes.length(); j++) {
+                    JSONObject code = codes.getJSONObject(j);
+                    expected.add(new Expected(code.getString("format"), code.getString("content")));
+                }
+            }
+
+            if ("nv21".equals(entry.optString("type"))) {
+                frames.add(new Frame(
+                    file,
+                    bytes,
+                    null,
+                    entry.getInt("width"),
+                    entry.getInt("height"),
+                    entry.optInt("rotation", 0),
+                    expected
+                ));
+            } else {
+                Bitmap bitmap = BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
+                if (bitmap == null) {
+                    throw new IOException("Unsupported image in corpus: " + file);
+                }
+                frames.add(new Frame(file, null, bitmap, bitmap.getWidth(), bitmap.getHeight(), 0, expected));
+            }
+        }
+        return frames;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[16 * 1024];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.smartwarehouse.benchmark;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import com.google.mlkit.vision.barcode.common.Barcode;
+import com.google.mlkit.vision.common.InputImage;
+import com.smartwarehouse.scanner.BarcodeFormats;
+import com.smartwarehouse.scanner.FrameCrop;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The detector and frame-preparation settings exercised by the benchmark. Format sets,
+ * format names and the scan-window crop come from :scanner-core, the code
+ * NativeBarcodeScannerPlugin runs, so results translate directly into startScan options.
+ */
+final class ScannerConfigurations {
+
+    enum FormatSet {
+        ALL(BarcodeFormats.ALL_SUPPORTED),
+        RETAIL(BarcodeFormats.RETAIL),
+        QR(Barcode.FORMAT_QR_CODE),
+        EINVOICE(BarcodeFormats.EINVOICE);
+
+        final int mask;
+
+        FormatSet(int mask) {
+            this.mask = mask;
+        }
+    }
+
+    /**
+     * Scan windows in normalized upright coordinates, as passed to startScan({ scanWindow }).
+     */
+    enum Crop {
+        FULL(null),
+        CENTER_BAND(new RectF(0.1f, 0.3f, 0.9f, 0.7f));
+
+        final RectF window;
+
+        Crop(RectF window) {
+            this.window = window;
+        }
+    }
+
+    private ScannerConfigurations() {
+    }
+
+    static String formatName(int format) {
+        return BarcodeFormats.name(format);
+    }
+
+    /**
+     * Downscales a corpus frame so the long edge is at most maxLongEdge (0 keeps the
+     * recorded size), like a lower ImageAnalysis resolution.
+     */
+    static FrameCorpus.Frame scale(FrameCorpus.Frame frame, int maxLongEdge) {
+        int longEdge = Math.max(frame.width, frame.height);
+        if (maxLongEdge <= 0 || longEdge <= maxLongEdge) {
+            return frame;
+        }
+
+        if (frame.isNv21) {
+            int factor = (int) Math.ceil(longEdge / (double) maxLongEdge);
+            int outWidth = (frame.width / factor) & ~1;
+            int outHeight = (frame.height / factor) & ~1;
+            byte[] data = decimateNv21(frame.nv21, frame.width, frame.height, factor, outWidth, outHeight);
+            return new FrameCorpus.Frame(frame.name, data, null, outWidth, outHeight, frame.rotation, frame.expected);
+        }
+
+        float scale = maxLongEdge / (float) longEdge;
+        Bitmap bitmap = Bitmap.createScaledBitmap(
+            frame.bitmap,
+            Math.round(frame.width * scale),
+            Math.round(frame.height * scale),
+            true
+        );
+        return new FrameCorpus.Frame(
+            frame.name, null, bitmap, bitmap.getWidth(), bitmap.getHeight(), frame.rotation, frame.expected);
+    }
+
+    /**
+     * Builds the detector input for a frame the way the plugin's analyzer does: NV21
+     * frames are copied out of their YUV planes by FrameCrop, cropped to the scan window
+     * if there is one, so the copy is part of each measured decode.
+     */
+    static InputImage toInputImage(FrameCorpus.Frame frame, Crop crop) {
+        if (frame.isNv21) {
+            RectF window = crop.window != null ? crop.window : FrameCrop.FULL_FRAME;
+            Rect rect = FrameCrop.toSensorCropRect(window, frame.rotation, frame.width, frame.height);
+            byte[] data = cropPlanes(frame.nv21, frame.width, frame.height, rect);
+            return InputImage.fromByteArray(data, rect.width(), rect.height(), frame.rotation, InputImage.IMAGE_FORMAT_NV21);
+        }
+
+        Bitmap bitmap = frame.bitmap;
+        if (crop.window != null) {
+            RectF w = crop.window;
+            int left = (int) (w.left * bitmap.getWidth());
+            int top = (int) (w.top * bitmap.getHeight());
+            bitmap = Bitmap.createBitmap(
+                bitmap,
+                left,
+                top,
+                Math.max(1, (int) (w.right * bitmap.getWidth()) - left),
+                Math.max(1, (int) (w.bottom * bitmap.getHeight()) - top)
+            );
+        }
+        return InputImage.fromBitmap(bitmap, 0);
+    }
+
+    /**
+     * Presents an NV21 buffer as the YUV_420_888 planes CameraX hands the analyzer (V and U
+     * interleaved with a pixel stride of 2) and crops it with the plugin's copy.
+     */
+    private static byte[] cropPlanes(byte[] nv21, int width, int height, Rect crop) {
+        int lumaSize = width * height;
+        ByteBuffer y = ByteBuffer.wrap(nv21, 0, lumaSize).slice();
+        ByteBuffer v = ByteBuffer.wrap(nv21, lumaSize, lumaSize / 2).slice();
+        ByteBuffer u = ByteBuffer.wrap(nv21, lumaSize + 1, lumaSize / 2 - 1).slice();
+        return FrameCrop.cropToNv21(y, width, 1, u, v, width, 2, crop);
+    }
+
+    // Nearest-neighbour downscale by an integer factor, like a lower ImageAnalysis resolution
+    private static byte[] decimateNv21(byte[] src, int width, int height, int factor, int outWidth, int outHeight) {
+        byte[] out = new byte[outWidth * outHeight * 3 / 2];
+        int pos = 0;
+        for (int y = 0; y < outHeight; y++) {
+            int rowStart = y * factor * width;
+            for (int x = 0; x < outWidth; x++) {
+                out[pos++] = src[rowStart + x * factor];
+            }
+        }
+        int chromaStart = width * height;
+        for (int y = 0; y < outHeight / 2; y++) {
+            int rowStart = chromaStart + y * factor * width;
+            for (int x = 0; x < outWidth / 2; x++) {
+                int index = rowStart + x * factor * 2;
+                out[pos++] = src[index];
+                out[pos++] = src[index + 1];
+            }
+        }
+        return out;
+    }
+}
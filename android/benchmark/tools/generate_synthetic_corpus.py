@@ -0,0 +1,422 @@
+#!/usr/bin/env python3
+"""
+Renders the synthetic part of the benchmark corpus (src/androidTest/assets/corpus).
+
+Frames are written the way CameraX delivers them: NV21 in sensor orientation, with the
+ImageInfo rotation recorded in the manifest. Covers EAN-13, EAN-8, CODE_39 and QR codes
+(including a Taiwan e-invoice left/right pair), all encoded here without extra
+dependencies. Output is deterministic, so re-running the script does not change the files.
+
+    python3 android/benchmark/tools/generate_synthetic_corpus.py
+"""
+import json
+import os
+import random
+import struct
+import zlib
+
+CORPUS = os.path.join(os.path.dirname(__file__), '..', 'src', 'androidTest', 'assets', 'corpus')
+
+EAN_L = ['0001101', '0011001', '0010011', '0111101', '0100011',
+         '0110001', '0101111', '0111011', '0110111', '0001011']
+EAN_G = ['0100111', '0110011', '0011011', '0100001', '0011101',
+         '0111001', '0000101', '0010001', '0001001', '0010111']
+EAN_R = [''.join('1' if b == '0' else '0' for b in code) for code in EAN_L]
+EAN13_PARITY = ['LLLLLL', 'LLGLGG', 'LLGGLG', 'LLGGGL', 'LGLLGG',
+                'LGGLLG', 'LGGGLL', 'LGLGLG', 'LGLGGL', 'LGGLGL']
+
+# 9 elements (bar, space, ... bar), MSB first, 1 = wide
+CODE39_CHARS = '0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ-. $/+%'
+CODE39_ENCODINGS = [
+    0x034, 0x121, 0x061, 0x160, 0x031, 0x130, 0x070, 0x025, 0x124, 0x064,
+    0x109, 0x049, 0x148, 0x019, 0x118, 0x058, 0x00D, 0x10C, 0x04C, 0x01C,
+    0x103, 0x043, 0x142, 0x013, 0x112, 0x052, 0x007, 0x106, 0x046, 0x016,
+    0x181, 0x0C1, 0x1C0, 0x091, 0x190, 0x0D0, 0x085, 0x184, 0x0C4, 0x0A8,
+    0x0A2, 0x08A, 0x02A,
+]
+CODE39_ASTERISK = 0x094
+
+INK = 25
+PAPER = 225
+
+
+def ean_check_digit(digits):
+    # Weights 3,1,3,... counted from the rightmost data digit
+    total = sum(int(d) * (3 if i % 2 == 0 else 1) for i, d in enumerate(reversed(digits)))
+    return str((10 - total % 10) % 10)
+
+
+def ean13_modules(data12):
+    code = data12 + ean_check_digit(data12)
+    parity = EAN13_PARITY[int(code[0])]
+    left = ''.join((EAN_L if p == 'L' else EAN_G)[int(d)] for p, d in zip(parity, code[1:7]))
+    right = ''.join(EAN_R[int(d)] for d in code[7:])
+    return code, '101' + left + '01010' + right + '101'
+
+
+def ean8_modules(data7):
+    code = data7 + ean_check_digit(data7)
+    left = ''.join(EAN_L[int(d)] for d in code[:4])
+    right = ''.join(EAN_R[int(d)] for d in code[4:])
+    return code, '101' + left + '01010' + right + '101'
+
+
+def code39_modules(text, narrow=1, wide=3):
+    def char(encoding):
+        out = ''
+        for i in range(9):
+            width = wide if encoding & (1 << (8 - i)) else narrow
+            out += ('1' if i % 2 == 0 else '0') * width
+        return out
+
+    encodings = [CODE39_ASTERISK] + [CODE39_ENCODINGS[CODE39_CHARS.index(c)] for c in text] + [CODE39_ASTERISK]
+    return '0' * narrow + ('0' * narrow).join(char(e) for e in encodings)
+
+
+# QR code, byte mode, error correction level L, versions 1-10: enough for both halves of a
+# Taiwan e-invoice. Per version: EC codewords per block, then (blocks, data codewords) groups.
+QR_EC_L = {
+    1: (7, [(1, 19)]), 2: (10, [(1, 34)]), 3: (15, [(1, 55)]), 4: (20, [(1, 80)]),
+    5: (26, [(1, 108)]), 6: (18, [(2, 68)]), 7: (20, [(2, 78)]), 8: (24, [(2, 97)]),
+    9: (30, [(2, 116)]), 10: (18, [(2, 68), (2, 69)]),
+}
+QR_ALIGNMENT = {
+    1: [], 2: [6, 18], 3: [6, 22], 4: [6, 26], 5: [6, 30], 6: [6, 34],
+    7: [6, 22, 38], 8: [6, 24, 42], 9: [6, 26, 46], 10: [6, 28, 50],
+}
+QR_FORMAT_L = 1
+QR_MASKS = [
+    lambda x, y: (x + y) % 2 == 0,
+    lambda x, y: y % 2 == 0,
+    lambda x, y: x % 3 == 0,
+    lambda x, y: (x + y) % 3 == 0,
+    lambda x, y: (x // 3 + y // 2) % 2 == 0,
+    lambda x, y: x * y % 2 + x * y % 3 == 0,
+    lambda x, y: (x * y % 2 + x * y % 3) % 2 == 0,
+    lambda x, y: ((x + y) % 2 + x * y % 3) % 2 == 0,
+]
+
+
+def gf_multiply(x, y):
+    # GF(256) with the QR polynomial x^8 + x^4 + x^3 + x^2 + 1
+    z = 0
+    for i in reversed(range(8)):
+        z = (z << 1) ^ ((z >> 7) * 0x11D)
+        z ^= ((y >> i) & 1) * x
+    return z
+
+
+def rs_remainder(data, degree):
+    divisor = [0] * (degree - 1) + [1]
+    root = 1
+    for _ in range(degree):
+        for j in range(degree):
+            divisor[j] = gf_multiply(divisor[j], root)
+            if j + 1 < degree:
+                divisor[j] ^= divisor[j + 1]
+        root = gf_multiply(root, 0x02)
+
+    result = [0] * degree
+    for byte in data:
+        factor = byte ^ result.pop(0)
+        result.append(0)
+        for i, coefficient in enumerate(divisor):
+            result[i] ^= gf_multiply(coefficient, factor)
+    return result
+
+
+def qr_codewords(payload):
+    for version in sorted(QR_EC_L):
+        ec_len, groups = QR_EC_L[version]
+        capacity = sum(blocks * size for blocks, size in groups)
+        count_bits = 8 if version < 10 else 16
+        if 4 + count_bits + 8 * len(payload) <= capacity * 8:
+            break
+    else:
+        raise ValueError('QR payload too long')
+
+    bits = '0100' + format(len(payload), '0%db' % count_bits) + ''.join(format(b, '08b') for b in payload)
+    bits += '0' * min(4, capacity * 8 - len(bits))
+    bits += '0' * (-len(bits) % 8)
+    data = [int(bits[i:i + 8], 2) for i in range(0, len(bits), 8)]
+    for i in range(capacity - len(data)):
+        data.append(0xEC if i % 2 == 0 else 0x11)
+
+    blocks = []
+    pos = 0
+    for count, size in groups:
+        for _ in range(count):
+            blocks.append(data[pos:pos + size])
+            pos += size
+    ecs = [rs_remainder(block, ec_len) for block in blocks]
+
+    out = []
+    for i in range(max(len(b) for b in blocks)):
+        out += [b[i] for b in blocks if i < len(b)]
+    for i in range(ec_len):
+        out += [e[i] for e in ecs]
+    return version, out
+
+
+def qr_matrix(text):
+    """Module matrix (rows of 0/1, without quiet zone) of text encoded as UTF-8."""
+    version, codewords = qr_codewords(text.encode('utf-8'))
+    size = version * 4 + 17
+    modules = [[0] * size for _ in range(size)]
+    function = [[False] * size for _ in range(size)]
+
+    def put(x, y, dark):
+        modules[y][x] = 1 if dark else 0
+        function[y][x] = True
+
+    for i in range(size):
+        put(6, i, i % 2 == 0)
+        put(i, 6, i % 2 == 0)
+    for cx, cy in ((3, 3), (size - 4, 3), (3, size - 4)):
+        for dy in range(-4, 5):
+            for dx in range(-4, 5):
+                x, y = cx + dx, cy + dy
+                if 0 <= x < size and 0 <= y < size:
+                    distance = max(abs(dx), abs(dy))
+                    put(x, y, distance not in (2, 4))
+    positions = QR_ALIGNMENT[version]
+    for i, cx in enumerate(positions):
+        for j, cy in enumerate(positions):
+            corner = (i == 0 and j == 0) or (i == 0 and j == len(positions) - 1) or (i == len(positions) - 1 and j == 0)
+            if corner:
+                continue
+            for dy in range(-2, 3):
+                for dx in range(-2, 3):
+                    put(cx + dx, cy + dy, max(abs(dx), abs(dy)) != 1)
+
+    def draw_format(mask):
+        data = QR_FORMAT_L << 3 | mask
+        rem = data
+        for _ in range(10):
+            rem = (rem << 1) ^ ((rem >> 9) * 0x537)
+        bits = (data << 10 | rem) ^ 0x5412
+        bit = lambda i: (bits >> i) & 1
+        for i in range(6):
+            put(8, i, bit(i))
+        put(8, 7, bit(6))
+        put(8, 8, bit(7))
+        put(7, 8, bit(8))
+        for i in range(9, 15):
+            put(14 - i, 8, bit(i))
+        for i in range(8):
+            put(size - 1 - i, 8, bit(i))
+        for i in range(8, 15):
+            put(8, size - 15 + i, bit(i))
+        put(8, size - 8, 1)
+
+    draw_format(0)  # reserves the format areas; redrawn with the chosen mask
+    if version >= 7:
+        rem = version
+        for _ in range(12):
+            rem = (rem << 1) ^ ((rem >> 11) * 0x1F25)
+        bits = version << 12 | rem
+        for i in range(18):
+            a, b = size - 11 + i % 3, i // 3
+            put(a, b, (bits >> i) & 1)
+            put(b, a, (bits >> i) & 1)
+
+    i = 0
+    right = size - 1
+    while right >= 1:
+        if right == 6:
+            right = 5
+        for vert in range(size):
+            for j in range(2):
+                x = right - j
+                y = size - 1 - vert if (right + 1) & 2 == 0 else vert
+                if not function[y][x] and i < len(codewords) * 8:
+                    modules[y][x] = (codewords[i >> 3] >> (7 - (i & 7))) & 1
+                    i += 1
+        right -= 2
+
+    def masked(mask):
+        mask_fn = QR_MASKS[mask]
+        return [[modules[y][x] ^ (0 if function[y][x] else int(mask_fn(x, y))) for x in range(size)]
+                for y in range(size)]
+
+    def penalty(grid):
+        score = 0
+        for lines in (grid, list(zip(*grid))):
+            for line in lines:
+                run = 1
+                for a, b in zip(line, line[1:]):
+                    if a == b:
+                        run += 1
+                    else:
+                        score += run - 2 if run >= 5 else 0
+                        run = 1
+                score += run - 2 if run >= 5 else 0
+        for y in range(size - 1):
+            for x in range(size - 1):
+                if grid[y][x] == grid[y][x + 1] == grid[y + 1][x] == grid[y + 1][x + 1]:
+                    score += 3
+        dark = sum(map(sum, grid))
+        score += abs(dark * 20 - size * size * 10) // (size * size) * 10
+        return score
+
+    best = min(range(8), key=lambda mask: (draw_format(mask), penalty(masked(mask)))[1])
+    draw_format(best)
+    return masked(best)
+
+
+class Canvas:
+    """Grayscale upright image with uneven lighting and sensor-like noise.
+
+    grain > 1 draws the background noise in grain x grain cells, like a photo that has been
+    demosaiced and scaled; it keeps large still images small in the repository.
+    """
+
+    def __init__(self, width, height, seed, grain=1):
+        self.width = width
+        self.height = height
+        rng = random.Random(seed)
+        self.pixels = bytearray(width * height)
+        cells = width // grain + 1
+        noise = [0] * cells
+        for y in range(height):
+            if grain > 1 and y % grain == 0:
+                noise = [rng.randint(-6, 6) for _ in range(cells)]
+            for x in range(width):
+                light = PAPER - 30 * (x / width) - 20 * (y / height)
+                grainy = noise[x // grain] if grain > 1 else rng.randint(-6, 6)
+                self.pixels[y * width + x] = max(0, min(255, int(light + grainy)))
+        self.rng = rng
+
+    def draw_modules(self, modules, left, top, module_px, bar_height):
+        for i, bit in enumerate(modules):
+            if bit != '1':
+                continue
+            for y in range(top, top + bar_height):
+                row = y * self.width
+                for x in range(left + i * module_px, left + (i + 1) * module_px):
+                    self.pixels[row + x] = max(0, min(255, INK + self.rng.randint(-6, 6)))
+
+    def centered(self, modules, center_y, module_px, bar_height):
+        width = len(modules) * module_px
+        self.draw_modules(modules, (self.width - width) // 2, center_y - bar_height // 2, module_px, bar_height)
+
+    def draw_matrix(self, matrix, center_x, center_y, module_px):
+        """Draws a 2D code centered on the point; the paper around it is its quiet zone."""
+        left = center_x - len(matrix[0]) * module_px // 2
+        top = center_y - len(matrix) * module_px // 2
+        for row, line in enumerate(matrix):
+            self.draw_modules(''.join(map(str, line)), left, top + row * module_px, module_px, module_px)
+
+
+def to_sensor(canvas, rotation):
+    """Sensor-orientation luma for a frame CameraX reports with the given rotation."""
+    if rotation == 0:
+        return canvas.width, canvas.height, bytes(canvas.pixels)
+    assert rotation == 90
+    # Rotating the sensor image 90 degrees clockwise gives the upright canvas
+    width, height = canvas.height, canvas.width
+    luma = bytearray(width * height)
+    for y in range(height):
+        for x in range(width):
+            luma[y * width + x] = canvas.pixels[x * canvas.width + (canvas.width - 1 - y)]
+    return width, height, bytes(luma)
+
+
+def write_nv21(path, canvas, rotation):
+    width, height, luma = to_sensor(canvas, rotation)
+    with open(path, 'wb') as out:
+        out.write(luma)
+        out.write(bytes([128]) * (width * height // 2))
+    return width, height
+
+
+def write_png(path, canvas):
+    raw = b''.join(b'\x00' + bytes(canvas.pixels[y * canvas.width:(y + 1) * canvas.width])
+                   for y in range(canvas.height))
+
+    def chunk(kind, data):
+        return struct.pack('>I', len(data)) + kind + data + struct.pack('>I', zlib.crc32(kind + data) & 0xffffffff)
+
+    with open(path, 'wb') as out:
+        out.write(b'\x89PNG\r\n\x1a\n')
+        out.write(chunk(b'IHDR', struct.pack('>IIBBBBB', canvas.width, canvas.height, 8, 0, 0, 0, 0)))
+        out.write(chunk(b'IDAT', zlib.compress(raw, 9)))
+        out.write(chunk(b'IEND', b''))
+
+
+def main():
+    os.makedirs(os.path.join(CORPUS, 'frames'), exist_ok=True)
+    os.makedirs(os.path.join(CORPUS, 'images'), exist_ok=True)
+    frames = []
+
+    def nv21(name, canvas, rotation, expected):
+        width, height = write_nv21(os.path.join(CORPUS, name), canvas, rotation)
+        frames.append({'file': name, 'type': 'nv21', 'width': width, 'height': height,
+                       'rotation': rotation, 'expected': expected})
+
+    def image(name, canvas, expected):
+        write_png(os.path.join(CORPUS, name), canvas)
+        frames.append({'file': name, 'type': 'image', 'expected': expected})
+
+    # Portrait hold: upright 540x960, recorded as a 960x540 sensor frame rotated 90
+    code, modules = ean13_modules('471008841234')
+    canvas = Canvas(540, 960, seed=1)
+    canvas.centered(modules, 480, 3, 180)
+    nv21('frames/ean13_portrait.nv21', canvas, 90, [{'format': 'EAN_13', 'content': code}])
+
+    # Taiwan e-invoice 1D barcode: period + invoice number + random code
+    text = '11310AB123456781234'
+    canvas = Canvas(960, 540, seed=2)
+    canvas.centered(code39_modules(text, narrow=2, wide=6), 270, 1, 160)
+    nv21('frames/einvoice_code39.nv21', canvas, 0, [{'format': 'CODE_39', 'content': text}])
+
+    # Shelf: two labels in one portrait frame, both inside the center band
+    ean13, ean13_bars = ean13_modules('490123456789')
+    ean8, ean8_bars = ean8_modules('9638507')
+    canvas = Canvas(540, 960, seed=3)
+    canvas.centered(ean13_bars, 380, 3, 110)
+    canvas.centered(ean8_bars, 600, 4, 110)
+    nv21('frames/shelf_two_labels.nv21', canvas, 90, [
+        {'format': 'EAN_13', 'content': ean13},
+        {'format': 'EAN_8', 'content': ean8},
+    ])
+
+    # Still images, one large enough to be downscaled by every resolution setting
+    code, modules = ean8_modules('5512345')
+    canvas = Canvas(800, 600, seed=4)
+    canvas.centered(modules, 300, 5, 220)
+    image('images/ean8_label.png', canvas, [{'format': 'EAN_8', 'content': code}])
+
+    code, modules = ean13_modules('400638133393')
+    canvas = Canvas(1360, 1020, seed=5, grain=4)
+    canvas.centered(modules, 510, 7, 360)
+    image('images/ean13_photo.png', canvas, [{'format': 'EAN_13', 'content': code}])
+
+    # Taiwan e-invoice QR pair, as printed side by side under the Code 39 barcode. The left
+    # code starts with invoice number, ROC date, random code, amounts (hex), buyer/seller
+    # tax ids and the 24-character encrypted check; the right one continues the item list.
+    left = ('AB12345678' '1131015' '1234' '00000064' '00000069' '00000000' '12345678'
+            'Q2hlY2tzdW1QbGFjZWhvbGRl'
+            ':**********:3:3:1:Milk:1:65:Bread:1:30:')
+    right = '**Eggs:1:10:'
+    canvas = Canvas(960, 540, seed=6)
+    canvas.draw_matrix(qr_matrix(left), 300, 270, 4)
+    canvas.draw_matrix(qr_matrix(right), 660, 270, 4)
+    nv21('frames/einvoice_qr_pair.nv21', canvas, 0, [
+        {'format': 'QR_CODE', 'content': left},
+        {'format': 'QR_CODE', 'content': right},
+    ])
+
+    # Shelf label with an item QR code, portrait hold
+    content = 'SWITEM-8f14e45f-0001'
+    canvas = Canvas(540, 960, seed=7)
+    canvas.draw_matrix(qr_matrix(content), 270, 480, 6)
+    nv21('frames/qr_item_label.nv21', canvas, 90, [{'format': 'QR_CODE', 'content': content}])
+
+    with open(os.path.join(CORPUS, 'manifest.json'), 'w') as out:
+        json.dump({'frames': frames}, out, indent=2)
+        out.write('\n')
+
+
+if __name__ == '__main__':
+    main()
@@ -0,0 +1,106 @@
+package com.smartwarehouse.scanner;
+
+import com.google.mlkit.vision.barcode.common.Barcode;
+
+/**
+ * The ML Kit formats the scanner supports and their names on the JS side
+ * (the "formats" option and the "format" field of results).
+ */
+public final class BarcodeFormats {
+
+    public static final int ALL_SUPPORTED =
+        Barcode.FORMAT_QR_CODE |
+        Barcode.FORMAT_EAN_13 |
+        Barcode.FORMAT_EAN_8 |
+        Barcode.FORMAT_UPC_A |
+        Barcode.FORMAT_UPC_E |
+        Barcode.FORMAT_CODE_39 |
+        Barcode.FORMAT_CODE_93 |
+        Barcode.FORMAT_CODE_128 |
+        Barcode.FORMAT_PDF417 |
+        Barcode.FORMAT_AZTEC |
+        Barcode.FORMAT_DATA_MATRIX |
+        Barcode.FORMAT_CODABAR |
+        Barcode.FORMAT_ITF;
+
+    public static final int RETAIL =
+        Barcode.FORMAT_EAN_13 | Barcode.FORMAT_EAN_8 | Barcode.FORMAT_UPC_A | Barcode.FORMAT_UPC_E;
+
+    // Taiwan e-invoice: two QR codes plus a Code 39 barcode
+    public static final int EINVOICE = Barcode.FORMAT_QR_CODE | Barcode.FORMAT_CODE_39;
+
+    private BarcodeFormats() {
+    }
+
+    public static String name(int format) {
+        switch (format) {
+            case Barcode.FORMAT_QR_CODE:
+                return "QR_CODE";
+            case Barcode.FORMAT_EAN_13:
+                return "EAN_13";
+            case Barcode.FORMAT_EAN_8:
+                return "EAN_8";
+            case Barcode.FORMAT_UPC_A:
+                return "UPC_A";
+            case Barcode.FORMAT_UPC_E:
+                return "UPC_E";
+            case Barcode.FORMAT_CODE_39:
+                return "CODE_39";
+            case Barcode.FORMAT_CODE_93:
+                return "CODE_93";
+            case Barcode.FORMAT_CODE_128:
+                return "CODE_128";
+            case Barcode.FORMAT_PDF417:
+                return "PDF417";
+            case Barcode.FORMAT_AZTEC:
+                return "AZTEC";
+            case Barcode.FORMAT_DATA_MATRIX:
+                return "DATA_MATRIX";
+            case Barcode.FORMAT_CODABAR:
+                return "CODABAR";
+            case Barcode.FORMAT_ITF:
+                return "ITF";
+            default:
+                return "UNKNOWN";
+        }
+    }
+
+    /**
+     * The ML Kit format for a name, case-insensitive; FORMAT_UNKNOWN if unsupported.
+     */
+    public static int parse(String name) {
+        if (name == null) {
+            return Barcode.FORMAT_UNKNOWN;
+        }
+        switch (name.toUpperCase()) {
+            case "QR_CODE":
+                return Barcode.FORMAT_QR_CODE;
+            case "EAN_13":
+                return Barcode.FORMAT_EAN_13;
+            case "EAN_8":
+                return Barcode.FORMAT_EAN_8;
+            case "UPC_A":
+                return Barcode.FORMAT_UPC_A;
+            case "UPC_E":
+                return Barcode.FORMAT_UPC_E;
+            case "CODE_39":
+                return Barcode.FORMAT_CODE_39;
+            case "CODE_93":
+                return Barcode.FORMAT_CODE_93;
+            case "CODE_128":
+                return Barcode.FORMAT_CODE_128;
+            case "PDF417":
+                return Barcode.FORMAT_PDF417;
+            case "AZTEC":
+                return Barcode.FORMAT_AZTEC;
+            case "DATA_MATRIX":
+                return Barcode.FORMAT_DATA_MATRIX;
+            case "CODABAR":
+                return Barcode.FORMAT_CODABAR;
+            case "ITF":
+                return Barcode.FORMAT_ITF;
+            default:
+                return Barcode.FORMAT_UNKNOWN;
+        }
+    }
+}
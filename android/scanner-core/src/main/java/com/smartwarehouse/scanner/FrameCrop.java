@@ -0,0 +1,116 @@
+package com.smartwarehouse.scanner;
+
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Maps a scan window onto a camera frame and copies that region out of the frame's
+ * YUV_420_888 planes as NV21, the input ML Kit decodes.
+ */
+public final class FrameCrop {
+
+    // The whole frame, for copying a frame without cropping it
+    public static final RectF FULL_FRAME = new RectF(0f, 0f, 1f, 1f);
+
+    private FrameCrop() {
+    }
+
+    /**
+     * Maps a window expressed in the upright (display) orientation back onto the
+     * sensor frame, aligned to even pixels for 4:2:0 chroma subsampling.
+     */
+    public static Rect toSensorCropRect(RectF window, int rotationDegrees, int width, int height) {
+        float left;
+        float top;
+        float right;
+        float bottom;
+        switch (rotationDegrees) {
+            case 90:
+                left = window.top;
+                top = 1f - window.right;
+                right = window.bottom;
+                bottom = 1f - window.left;
+                break;
+            case 180:
+                left = 1f - window.right;
+                top = 1f - window.bottom;
+                right = 1f - window.left;
+                bottom = 1f - window.top;
+                break;
+            case 270:
+                left = 1f - window.bottom;
+                top = window.left;
+                right = 1f - window.top;
+                bottom = window.right;
+                break;
+            default:
+                left = window.left;
+                top = window.top;
+                right = window.right;
+                bottom = window.bottom;
+                break;
+        }
+
+        int cropLeft = ((int) (left * width)) & ~1;
+        int cropTop = ((int) (top * height)) & ~1;
+        int cropRight = Math.min(width, Math.max(cropLeft + 2, ((int) (right * width)) & ~1));
+        int cropBottom = Math.min(height, Math.max(cropTop + 2, ((int) (bottom * height)) & ~1));
+        return new Rect(cropLeft, cropTop, cropRight, cropBottom);
+    }
+
+    /**
+     * Like {@link #toSensorCropRect(RectF, int, int, int)}, with the window normalized to
+     * the visible part of the frame, e.g. the crop rect CameraX sets on analysis frames
+     * when they share a ViewPort with the preview.
+     */
+    public static Rect toSensorCropRect(RectF window, int rotationDegrees, Rect visible) {
+        int originLeft = (visible.left + 1) & ~1;
+        int originTop = (visible.top + 1) & ~1;
+        Rect crop = toSensorCropRect(
+            window, rotationDegrees, visible.right - originLeft, visible.bottom - originTop);
+        crop.offset(originLeft, originTop);
+        return crop;
+    }
+
+    /**
+     * Copies the crop out of YUV_420_888 planes into an NV21 buffer. Buffers are read
+     * from index 0; the U and V planes share row and pixel stride, as CameraX guarantees.
+     */
+    public static byte[] cropToNv21(
+        ByteBuffer yBuffer, int yRowStride, int yPixelStride,
+        ByteBuffer uBuffer, ByteBuffer vBuffer, int uvRowStride, int uvPixelStride,
+        Rect crop
+    ) {
+        int width = crop.width();
+        int height = crop.height();
+        byte[] out = new byte[width * height * 3 / 2];
+        int pos = 0;
+
+        // Luma plane
+        for (int row = 0; row < height; row++) {
+            int offset = (crop.top + row) * yRowStride + crop.left * yPixelStride;
+            if (yPixelStride == 1) {
+                yBuffer.position(offset);
+                yBuffer.get(out, pos, width);
+                pos += width;
+            } else {
+                for (int col = 0; col < width; col++) {
+                    out[pos++] = yBuffer.get(offset + col * yPixelStride);
+                }
+            }
+        }
+
+        // Chroma planes, interleaved as VU for NV21
+        for (int row = 0; row < height / 2; row++) {
+            int offset = (crop.top / 2 + row) * uvRowStride + (crop.left / 2) * uvPixelStride;
+            for (int col = 0; col < width / 2; col++) {
+                int index = offset + col * uvPixelStride;
+                out[pos++] = vBuffer.get(index);
+                out[pos++] = uBuffer.get(index);
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,52 @@
+import { NextResponse } from 'next/server'
+import { getServerSession } from 'next-auth'
+import { authOptions } from '@/lib/auth'
+import { MideaAPIClient } from '@/lib/midea-api-client'
+
+export const dynamic = 'force-dynamic'
+
+/**
+ * Issue a fresh Midea access token for native clients
+ * Called by the Android MSmartSDK token refresh delegate when the current token expires
+ */
+export async function POST() {
+  try {
+    const session = await getServerSession(authOptions)
+
+    if (!(session?.user as any)?.id) {
+      return NextResponse.json({ error: 'Unauthorized' }, { status: 401 })
+    }
+
+    const clientId = process.env.MIDEA_CLIENT_ID
+    const clientSecret = process.env.MIDEA_CLIENT_SECRET
+    const serverHost = process.env.MIDEA_SERVER_HOST || 'https://obm.midea.com'
+
+    if (!clientId || !clientSecret) {
+      return NextResponse.json(
+        {
+          error: 'Midea SDK credentials not configured',
+          message: 'Please set MIDEA_CLIENT_ID and MIDEA_CLIENT_SECRET in environment variables',
+        },
+        { status: 500 }
+      )
+    }
+
+    const client = new MideaAPIClient({ clientId, clientSecret, serverHost })
+    const { accessToken, expiresIn } = await client.requestAccessToken()
+
+    if (!accessToken) {
+      return NextResponse.json({ error: 'Midea token endpoint returned no access token' }, { status: 502 })
+    }
+
+    return NextResponse.json({ accessToken, expiresIn })
+  } catch (error: any) {
+    console.error('Failed to refresh Midea access token:', error)
+    return NextResponse.json(
+      {
+        error: 'Failed to refresh Midea access token',
+        message: error.message,
+      },
+      { status: 502 }
+    )
+  }
+}
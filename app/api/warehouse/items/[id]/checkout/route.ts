@@ -8,12 +8,15 @@ import { prisma } from '@/lib/prisma'
 import { CacheInvalidation } from '@/lib/cache'
 import { checkAndCreateNotifications } from '@/lib/notifications'
 import { transcribeAudioFormData } from '@/lib/speech-to-text'
+import { idempotent } from '@/lib/idempotency'
 
 // 強制動態渲染此路由
 export const dynamic = 'force-dynamic'
 
-// POST 處理器：取出物品（減少庫存）
-export async function POST(
+// POST 處理器：取出物品（減少庫存；帶 Idempotency-Key 的重送只執行一次）
+export const POST = idempotent(checkoutItem)
+
+async function checkoutItem(
   request: NextRequest,
   { params }: { params: { id: string } }
 ) {
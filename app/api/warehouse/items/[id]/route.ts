@@ -7,6 +7,7 @@ import { authOptions } from '@/lib/auth'
 import { prisma } from '@/lib/prisma'
 import { checkAndCreateNotifications } from '@/lib/notifications'
 import { trackActivity } from '@/lib/activity-tracker'
+import { idempotent } from '@/lib/idempotency'
 
 // 強制動態渲染此路由
 export const dynamic = 'force-dynamic'
@@ -80,8 +81,10 @@ export async function GET(
   }
 }
 
-// PUT 處理器：完整更新物品
-export async function PUT(
+// PUT 處理器：完整更新物品（帶 Idempotency-Key 的重送只執行一次）
+export const PUT = idempotent(updateItem)
+
+async function updateItem(
   request: NextRequest,
   { params }: { params: { id: string } }
 ) {
@@ -114,6 +117,14 @@ export async function PUT(
       return NextResponse.json({ error: 'Item not found' }, { status: 404 })
     }
 
+    // 衝突檢測：離線客戶端重送時帶上修改當時看到的 updatedAt
+    if (isStaleWrite(item.updatedAt, body.expectedUpdatedAt)) {
+      return NextResponse.json(
+        { error: 'Item was modified since it was last fetched', code: 'CONFLICT', item },
+        { status: 409 }
+      )
+    }
+
     // 更新物品（完整更新所有欄位）
     const updatedItem = await prisma.item.update({
       where: { id: itemId },
@@ -254,8 +265,10 @@ export async function PATCH(
   }
 }
 
-// DELETE 處理器：刪除物品
-export async function DELETE(
+// DELETE 處理器：刪除物品（帶 Idempotency-Key 的重送只執行一次）
+export const DELETE = idempotent(deleteItem)
+
+async function deleteItem(
   request: NextRequest,
   { params }: { params: { id: string } }
 ) {
@@ -287,6 +300,15 @@ export async function DELETE(
       return NextResponse.json({ error: 'Item not found' }, { status: 404 })
     }
 
+    // 衝突檢測：離線客戶端重送時帶上刪除當時看到的 updatedAt
+    const expectedUpdatedAt = new URL(request.url).searchParams.get('expectedUpdatedAt')
+    if (isStaleWrite(item.updatedAt, expectedUpdatedAt)) {
+      return NextResponse.json(
+        { error: 'Item was modified since it was last fetched', code: 'CONFLICT', item },
+        { status: 409 }
+      )
+    }
+
     // 刪除物品前創建活動記錄（可選，根據需求實現）
 
     // 刪除物品
@@ -299,4 +321,13 @@ export async function DELETE(
     console.error('Error deleting item:', error)
     return NextResponse.json({ error: 'Failed to delete item' }, { status: 500 })
   }
-}
\ No newline at end of file
+}
+
+// 判斷寫入是否基於過期的物品版本；未提供 expectedUpdatedAt 時不檢查
+function isStaleWrite(updatedAt: Date | null, expectedUpdatedAt: string | null | undefined): boolean {
+  if (!expectedUpdatedAt || !updatedAt) {
+    return false
+  }
+  const expected = new Date(expectedUpdatedAt)
+  return !isNaN(expected.getTime()) && expected.getTime() !== updatedAt.getTime()
+}
@@ -0,0 +1,113 @@
+// 物品批次 API 路由
+// 在一次請求中建立或更新多個物品（例如匯入發票或批次掃描），並逐筆返回結果
+
+import { NextRequest, NextResponse } from 'next/server'
+import { getServerSession } from 'next-auth'
+import { authOptions } from '@/lib/auth'
+import { POST as createItem } from '../route'
+import { PUT as updateItem } from '../[id]/route'
+import { IDEMPOTENCY_HEADER } from '@/lib/idempotency'
+
+// 強制動態渲染此路由
+export const dynamic = 'force-dynamic'
+
+const MAX_OPERATIONS = 100
+
+// 批次操作：create 使用與 POST /api/warehouse/items 相同的欄位，update 使用與 PUT /api/warehouse/items/[id] 相同的欄位
+// idempotencyKey 與單筆請求的 Idempotency-Key 標頭相同，重送的操作只執行一次
+interface BatchOperation {
+  type: 'create' | 'update'
+  id?: string
+  idempotencyKey?: string
+  create?: Record<string, any>
+  update?: Record<string, any>
+}
+
+interface BatchResult {
+  index: number
+  success: boolean
+  status: number
+  item?: any
+  error?: string
+}
+
+// POST 處理器：批次建立/更新物品
+// 回應：{ results: [{ index, success, status, item?, error? }] }，順序與請求相同；單筆失敗不影響其他筆
+export async function POST(request: NextRequest) {
+  try {
+    const session = await getServerSession(authOptions)
+
+    if (!(session?.user as any)?.id) {
+      return NextResponse.json({ error: 'Unauthorized' }, { status: 401 })
+    }
+
+    const body = await request.json()
+    const operations: BatchOperation[] | null = Array.isArray(body?.operations) ? body.operations : null
+
+    if (!operations) {
+      return NextResponse.json({ error: 'operations must be an array' }, { status: 400 })
+    }
+
+    if (operations.length > MAX_OPERATIONS) {
+      return NextResponse.json(
+        { error: `A batch can contain at most ${MAX_OPERATIONS} operations` },
+        { status: 400 }
+      )
+    }
+
+    // 依序執行：同一批次的物品常共用新的房間/櫃子/分類，並行執行會重複建立
+    const results: BatchResult[] = []
+    for (let index = 0; index < operations.length; index++) {
+      results.push(await runOperation(request, operations[index], index))
+    }
+
+    return NextResponse.json({ results })
+  } catch (error) {
+    console.error('Error running item batch:', error)
+    return NextResponse.json({ error: 'Failed to run item batch' }, { status: 500 })
+  }
+}
+
+// Each row goes through the single-item handlers so batch writes get exactly the same
+// validation, find-or-create, history and notification behaviour. The handlers read the
+// session from the surrounding request, so only the body and the operation's
+// idempotency key have to be passed on.
+async function runOperation(request: NextRequest, operation: BatchOperation, index: number): Promise<BatchResult> {
+  try {
+    let response: Response
+    const headers: Record<string, string> = { 'Content-Type': 'application/json' }
+    if (typeof operation?.idempotencyKey === 'string' && operation.idempotencyKey) {
+      headers[IDEMPOTENCY_HEADER] = operation.idempotencyKey
+    }
+
+    if (operation?.type === 'create' && operation.create) {
+      response = await createItem(
+        new NextRequest(new URL('/api/warehouse/items', request.url), {
+          method: 'POST',
+          headers,
+          body: JSON.stringify(operation.create)
+        })
+      )
+    } else if (operation?.type === 'update' && operation.id && operation.update) {
+      response = await updateItem(
+        new NextRequest(new URL(`/api/warehouse/items/${encodeURIComponent(operation.id)}`, request.url), {
+          method: 'PUT',
+          headers,
+          body: JSON.stringify(operation.update)
+        }),
+        { params: { id: operation.id } }
+      )
+    } else {
+      return { index, success: false, status: 400, error: 'Invalid batch operation' }
+    }
+
+    const payload = await response.json().catch(() => ({}))
+    if (response.ok) {
+      return { index, success: true, status: response.status, item: payload }
+    }
+    return { index, success: false, status: response.status, error: payload?.error || 'Operation failed' }
+  } catch (error: any) {
+    console.error(`Item batch operation ${index} failed:`, error)
+    return { index, success: false, status: 500, error: error?.message || 'Operation failed' }
+  }
+}
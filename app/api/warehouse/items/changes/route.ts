@@ -0,0 +1,178 @@
+// 物品增量同步 API 路由
+// 返回自上次同步游標之後建立、更新或刪除的物品，供原生客戶端更新本地快取
+
+import { NextRequest, NextResponse } from 'next/server'
+import { getServerSession } from 'next-auth'
+import { authOptions } from '@/lib/auth'
+import { prisma } from '@/lib/prisma'
+
+// 強制動態渲染此路由
+export const dynamic = 'force-dynamic'
+
+const DEFAULT_LIMIT = 500
+const MAX_LIMIT = 1000
+
+// 同步游標：`<ISO 時間>|<id>`，即已返回的最後一筆變更（物品或刪除記錄）
+// 時間相同的變更（例如批量刪除共用同一個 deletedAt）再按 id 排序，分頁時不會遺漏
+// 只有時間的舊游標仍然接受，該時間點上的變更會重新發送一次
+interface SyncKey {
+  at: Date
+  id: string
+}
+
+function parseCursor(value: string): SyncKey | null {
+  const separator = value.indexOf('|')
+  const at = new Date(separator >= 0 ? value.slice(0, separator) : value)
+  if (isNaN(at.getTime())) {
+    return null
+  }
+  // A bare timestamp gets id '', which sorts before every id
+  return { at, id: separator >= 0 ? value.slice(separator + 1) : '' }
+}
+
+function compareKeys(a: SyncKey, b: SyncKey): number {
+  const byTime = a.at.getTime() - b.at.getTime()
+  if (byTime !== 0) {
+    return byTime
+  }
+  return a.id < b.id ? -1 : a.id > b.id ? 1 : 0
+}
+
+// 時間相同時按 id 比較：(field, id) > (since.at, since.id)
+function afterKey(field: 'updatedAt' | 'deletedAt', since: SyncKey) {
+  return {
+    OR: [
+      { [field]: { gt: since.at } },
+      { [field]: since.at, id: { gt: since.id } }
+    ]
+  }
+}
+
+// GET 處理器：獲取 since 之後的物品變更
+// 回應：{ items, deleted: [{ id, deletedAt }], cursor, hasMore }
+// 客戶端保存 cursor 作為下一次請求的 since；hasMore 為 true 時應立即再次請求
+export async function GET(request: NextRequest) {
+  try {
+    const session = await getServerSession(authOptions)
+
+    if (!(session?.user as any)?.id) {
+      return NextResponse.json({ error: 'Unauthorized' }, { status: 401 })
+    }
+
+    const userId = (session?.user as any)?.id
+    const { searchParams } = new URL(request.url)
+    const sinceParam = searchParams.get('since') // 上次同步游標，未提供時為完整同步
+    const activeHouseholdId = searchParams.get('householdId') // 家庭 ID
+    const limitParam = parseInt(searchParams.get('limit') || '', 10)
+    const limit = limitParam > 0 ? Math.min(limitParam, MAX_LIMIT) : DEFAULT_LIMIT
+
+    let since: SyncKey | null = null
+    if (sinceParam) {
+      since = parseCursor(sinceParam)
+      if (!since) {
+        return NextResponse.json({ error: 'Invalid since cursor' }, { status: 400 })
+      }
+    }
+
+    // 獲取用戶的家庭 - 與物品列表相同：使用提供的 householdId 或第一個家庭
+    const household = await prisma.household.findFirst({
+      where: {
+        ...(activeHouseholdId ? { id: activeHouseholdId } : {}),
+        members: {
+          some: {
+            userId: userId
+          }
+        }
+      }
+    })
+
+    if (!household) {
+      return NextResponse.json({ error: 'Household not found' }, { status: 404 })
+    }
+
+    // 多取一筆以判斷是否還有更多變更
+    const [changedItems, tombstones] = await Promise.all([
+      prisma.item.findMany({
+        where: {
+          householdId: household.id,
+          ...(since ? afterKey('updatedAt', since) : {})
+        },
+        include: {
+          category: {
+            include: {
+              parent: {
+                include: {
+                  parent: true // 包含祖父分類
+                }
+              }
+            }
+          },
+          room: true, // 包含房間資訊
+          cabinet: true // 包含櫃子資訊
+        },
+        orderBy: [{ updatedAt: 'asc' }, { id: 'asc' }],
+        take: limit + 1
+      }),
+      prisma.deletedItem.findMany({
+        where: {
+          householdId: household.id,
+          ...(since ? afterKey('deletedAt', since) : {})
+        },
+        orderBy: [{ deletedAt: 'asc' }, { id: 'asc' }],
+        take: limit + 1
+      })
+    ])
+
+    const itemKey = (item: (typeof changedItems)[number]): SyncKey =>
+      ({ at: item.updatedAt ?? new Date(0), id: item.id })
+    const tombstoneKey = (tombstone: (typeof tombstones)[number]): SyncKey =>
+      ({ at: tombstone.deletedAt, id: tombstone.id })
+
+    // Both lists share one cursor: when either is cut off at the limit, the other is
+    // trimmed to the same (time, id) key so nothing in between is skipped
+    let cap: SyncKey | null = null
+    if (changedItems.length > limit) {
+      cap = itemKey(changedItems[limit - 1])
+    }
+    if (tombstones.length > limit) {
+      const deletedCap = tombstoneKey(tombstones[limit - 1])
+      if (!cap || compareKeys(deletedCap, cap) < 0) {
+        cap = deletedCap
+      }
+    }
+    const hasMore = cap !== null
+
+    const items = changedItems
+      .slice(0, limit)
+      .filter(item => !cap || compareKeys(itemKey(item), cap) <= 0)
+    const sentTombstones = tombstones
+      .slice(0, limit)
+      .filter(tombstone => !cap || compareKeys(tombstoneKey(tombstone), cap) <= 0)
+    // A full sync only needs deletions when resuming; without a cursor the items are the whole state
+    const deleted = (since ? sentTombstones : [])
+      .map(tombstone => ({ id: tombstone.itemId, deletedAt: tombstone.deletedAt }))
+
+    let cursor = cap
+    if (!cursor) {
+      cursor = since
+      for (const key of [...items.map(itemKey), ...sentTombstones.map(tombstoneKey)]) {
+        if (!cursor || compareKeys(key, cursor) > 0) {
+          cursor = key
+        }
+      }
+    }
+
+    return NextResponse.json({
+      items,
+      deleted,
+      cursor: cursor ? `${cursor.at.toISOString()}|${cursor.id}` : null,
+      hasMore
+    })
+  } catch (error) {
+    console.error('Error fetching item changes:', error)
+    return NextResponse.json(
+      { error: 'Failed to fetch item changes' },
+      { status: 500 }
+    )
+  }
+}
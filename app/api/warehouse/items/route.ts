@@ -9,12 +9,15 @@ import { trackActivity } from '@/lib/activity-tracker'
 import { CacheInvalidation } from '@/lib/cache'
 import { broadcastToHousehold } from '@/lib/realtime'
 import { checkAndCreateNotifications } from '@/lib/notifications'
+import { idempotent } from '@/lib/idempotency'
 
 // 強制動態渲染此路由
 export const dynamic = 'force-dynamic'
 
-// POST 處理器：創建新物品
-export async function POST(request: NextRequest) {
+// POST 處理器：創建新物品（帶 Idempotency-Key 的重送只執行一次）
+export const POST = idempotent(createItem)
+
+async function createItem(request: NextRequest) {
   try {
     const session = await getServerSession(authOptions)
     
@@ -676,6 +679,73 @@ export async function GET(request: NextRequest) {
       subcategory: subcategory || 'none'
     })
 
+    // Track view/filter activity (non-blocking)
+    const trackItemsView = (itemCount: number) => {
+      const activityMetadata: any = {
+        itemCount
+      }
+      if (search) activityMetadata.searchQuery = search
+      if (category || categoryId) activityMetadata.category = category || categoryId
+      if (room || roomId) activityMetadata.room = room || roomId
+
+      trackActivity({
+        userId,
+        householdId: household.id,
+        activityType: search ? 'search' : category || room ? 'filter' : 'navigate',
+        action: search ? 'search_items' : category || room ? (category ? 'filter_by_category' : 'filter_by_room') : 'navigate_to_items',
+        description: search 
+          ? `Searched items: "${search}"`
+          : category 
+            ? `Filtered by category: ${category}`
+            : room
+              ? `Filtered by room: ${room}`
+              : 'Viewed items list',
+        metadata: activityMetadata
+      }).catch(err => console.error('Failed to track items view activity:', err))
+    }
+
+    // 分頁（原生客戶端使用，page 從 1 開始）- 逐筆返回物品（與 changes API 相同格式），
+    // 只查詢當前頁，不按名稱分組；未提供時照舊返回分組後的完整列表
+    const page = parseInt(searchParams.get('page') || '', 10)
+    const limit = parseInt(searchParams.get('limit') || '', 10)
+    if (page > 0 && limit > 0) {
+      const [pageItems, total] = await Promise.all([
+        prisma.item.findMany({
+          where,
+          include: {
+            category: {
+              include: {
+                parent: {
+                  include: {
+                    parent: true // 包含祖父分類
+                  }
+                }
+              }
+            },
+            room: true, // 包含房間資訊
+            cabinet: true // 包含櫃子資訊
+          },
+          // id 作為次要排序，確保相同建立時間的物品在各頁之間順序穩定
+          orderBy: [{ createdAt: 'desc' }, { id: 'asc' }],
+          skip: (page - 1) * limit,
+          take: limit
+        }),
+        prisma.item.count({ where })
+      ])
+
+      // Only the first page counts as a view; later pages are the same list scrolling
+      if (page === 1) {
+        trackItemsView(total)
+      }
+
+      return NextResponse.json({
+        items: pageItems,
+        total,
+        page,
+        limit
+      })
+    }
+
     // 查詢物品列表
     const items = await prisma.item.findMany({
       where,
@@ -705,6 +775,10 @@ export async function GET(request: NextRequest) {
 
     // Group items by name (normalized) and aggregate quantities
     const groupedItems = new Map<string, any>()
+
+    // Barcode / QR code of every item in a group, so native clients can index them for offline scans
+    const codesOf = (item: { id: string; barcode: string | null; qrCode: string | null }) =>
+      item.barcode || item.qrCode ? [{ itemId: item.id, barcode: item.barcode, qrCode: item.qrCode }] : []
     
     items.forEach(item => {
       // Normalize item name for grouping (case-insensitive, trim whitespace)
@@ -716,6 +790,7 @@ export async function GET(request: NextRequest) {
         // Aggregate quantities
         existing.totalQuantity += item.quantity
         existing.itemIds.push(item.id)
+        existing.codes.push(...codesOf(item))
         
         // Use the lowest minQuantity (most restrictive)
         if (item.minQuantity !== null) {
@@ -750,6 +825,7 @@ export async function GET(request: NextRequest) {
           imageUrl: item.imageUrl,
           category: item.category,
           itemIds: [item.id],
+          codes: codesOf(item),
           locations: [{
             id: item.id,
             quantity: item.quantity,
@@ -781,28 +857,7 @@ export async function GET(request: NextRequest) {
       }
     })
 
-    // Track view/filter activity (non-blocking)
-    const activityMetadata: any = {
-      itemCount: result.length
-    }
-    if (search) activityMetadata.searchQuery = search
-    if (category || categoryId) activityMetadata.category = category || categoryId
-    if (room || roomId) activityMetadata.room = room || roomId
-    
-    trackActivity({
-      userId,
-      householdId: household.id,
-      activityType: search ? 'search' : category || room ? 'filter' : 'navigate',
-      action: search ? 'search_items' : category || room ? (category ? 'filter_by_category' : 'filter_by_room') : 'navigate_to_items',
-      description: search 
-        ? `Searched items: "${search}"`
-        : category 
-          ? `Filtered by category: ${category}`
-          : room
-            ? `Filtered by room: ${room}`
-            : 'Viewed items list',
-      metadata: activityMetadata
-    }).catch(err => console.error('Failed to track items view activity:', err))
+    trackItemsView(result.length)
 
     return NextResponse.json(result)
   } catch (error) {
@@ -8,6 +8,7 @@ import { useDropzone } from 'react-dropzone'
 import { XMarkIcon, CameraIcon, QrCodeIcon, DocumentIcon } from '@heroicons/react/24/outline'
 import toast from 'react-hot-toast'
 import BarcodeScanner from './BarcodeScanner'
+import { indexItemBarcode } from '@/lib/barcode-index'
 import TaiwanInvoiceUploader from './TaiwanInvoiceUploader'
 import { useLanguage } from '../LanguageProvider'
 import { useHousehold } from '../HouseholdProvider'
@@ -325,10 +326,15 @@ export default function AddItemModal({ onClose }: AddItemModalProps) {
     }
   }
 
-  const handleBarcodeScan = (scannedBarcode: string) => {
+  const handleBarcodeScan = (scannedBarcode: string, knownItem?: Record<string, any>) => {
     setBarcodeValue(scannedBarcode)
     setShowBarcodeScanner(false)
-    toast.success(`Barcode scanned: ${scannedBarcode}`)
+    if (knownItem?.name) {
+      // Resolved on the device from the barcode index, no API call needed
+      toast.success(`Barcode scanned: ${scannedBarcode} (${knownItem.name})`)
+    } else {
+      toast.success(`Barcode scanned: ${scannedBarcode}`)
+    }
   }
 
   const handleQRSubmit = async () => {
@@ -462,6 +468,7 @@ export default function AddItemModal({ onClose }: AddItemModalProps) {
       if (response.ok) {
         const result = await response.json()
         console.log('Item created successfully:', result)
+        indexItemBarcode(household.id, result)
         toast.success('Item added successfully!')
         onClose()
       } else {
@@ -1433,17 +1440,18 @@ export default function AddItemModal({ onClose }: AddItemModalProps) {
       {/* Barcode Scanner Modal */}
       {showBarcodeScanner && (
         <BarcodeScanner
-          onScan={(code) => {
+          onScan={(code, knownItem) => {
             // Handle both barcode and QR code inputs
             if (inputMethod === 'qr') {
               setQrValue(code)
             } else {
-              handleBarcodeScan(code)
+              handleBarcodeScan(code, knownItem)
             }
             setShowBarcodeScanner(false)
           }}
           onClose={() => setShowBarcodeScanner(false)}
           userLanguage={currentLanguage}
+          householdId={household?.id}
           onImageAnalysis={(result) => {
             setAiResult(result)
             setFormData(prev => ({
@@ -10,13 +10,14 @@ import { Camera } from '@capacitor/camera'
 
 // 條碼掃描器屬性介面
 interface BarcodeScannerProps {
-  onScan: (barcode: string) => void // 掃描成功回調
+  onScan: (barcode: string, knownItem?: Record<string, any>) => void // 掃描成功回調（已登記的物品會附上本地索引中的資料）
   onClose: () => void // 關閉回調
   onImageAnalysis?: (result: any) => void // 圖像分析回調（用於視覺識別）
   userLanguage?: string // 用戶語言（用於台灣電子發票檢測）
+  householdId?: string // 家庭 ID（用於裝置上的條碼索引查詢）
 }
 
-export default function BarcodeScanner({ onScan, onClose, onImageAnalysis, userLanguage = 'en' }: BarcodeScannerProps) {
+export default function BarcodeScanner({ onScan, onClose, onImageAnalysis, userLanguage = 'en', householdId }: BarcodeScannerProps) {
   const scannerRef = useRef<HTMLDivElement>(null) // 掃描器容器引用
   const fileInputRef = useRef<HTMLInputElement>(null) // 檔案輸入引用
   const [isScanning, setIsScanning] = useState(false) // 是否正在掃描
@@ -88,13 +89,14 @@ export default function BarcodeScanner({ onScan, onClose, onImageAnalysis, userL
         // Start scanning - iOS shows full-screen camera, resolves when barcode detected or cancelled
         // The iOS implementation shows a full-screen camera overlay
         // startScan() will NOT resolve immediately - it waits for barcode detection or cancellation
-        scanPromise = NativeBarcodeScanner.startScan()
+        // With a householdId, Android resolves known codes against the on-device index
+        scanPromise = NativeBarcodeScanner.startScan(householdId ? { householdId } : undefined)
         const result = await scanPromise
 
         if (isActive) {
           if (result.hasContent && result.content) {
             console.log('Native barcode detected:', result.content, 'Format:', result.format)
-            onScan(result.content)
+            onScan(result.content, result.knownItem ? result.item : undefined)
             
             // Clean up after successful scan
             try {
@@ -189,7 +191,7 @@ export default function BarcodeScanner({ onScan, onClose, onImageAnalysis, userL
         NativeBarcodeScanner.showBackground().catch(() => {})
       }
     }
-  }, [isNative, onScan, onClose])
+  }, [isNative, onScan, onClose, householdId])
 
   // Web-based scanning (QuaggaJS) - fallback for web or if native fails
   useEffect(() => {
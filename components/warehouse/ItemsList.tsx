@@ -6,6 +6,7 @@ import { useState, useEffect, useCallback } from 'react'
 import { useLanguage } from '../LanguageProvider'
 import { useHousehold } from '../HouseholdProvider'
 import ItemCard from './ItemCard'
+import { indexItemBarcodes } from '@/lib/barcode-index'
 
 // 物品介面定義
 interface Item {
@@ -102,6 +103,10 @@ export default function ItemsList({
         const data = await response.json()
         console.log('ItemsList: Successfully fetched', data.length, 'items')
         setItems(data) // 設定物品列表
+        // 更新裝置上的條碼索引；只有未篩選的完整列表才會重建索引
+        indexItemBarcodes(household.id, data, {
+          replace: !searchTerm && !selectedCategory && !selectedRoom
+        })
       } else {
         let errorMessage = 'Failed to fetch items'
         try {
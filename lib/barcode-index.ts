@@ -0,0 +1,79 @@
+import { Capacitor } from '@capacitor/core'
+import { NativeBarcodeScanner } from './native-barcode-scanner'
+
+/**
+ * A grouped row of GET /api/warehouse/items, as far as the barcode index needs it
+ */
+interface GroupedItemRow {
+  id: string
+  name: string
+  description?: string | null
+  imageUrl?: string | null
+  quantity?: number
+  category?: { id: string; name: string } | null
+  codes?: Array<{ itemId: string; barcode: string | null; qrCode: string | null }>
+}
+
+/**
+ * Only the Android scanner keeps an on-device barcode index
+ */
+export function hasNativeBarcodeIndex(): boolean {
+  return Capacitor.getPlatform() === 'android'
+}
+
+/**
+ * Indexes the barcodes and QR codes of a loaded item list, so native scans of registered
+ * stock resolve to the item offline. Pass replace only for the household's full, unfiltered
+ * list; filtered lists just add to the index. Failures are logged and never surface.
+ */
+export async function indexItemBarcodes(
+  householdId: string,
+  rows: GroupedItemRow[],
+  options: { replace?: boolean } = {}
+): Promise<void> {
+  if (!hasNativeBarcodeIndex()) return
+
+  const items = rows.flatMap(row =>
+    (row.codes || []).map(code => ({
+      id: code.itemId,
+      name: row.name,
+      description: row.description ?? null,
+      imageUrl: row.imageUrl ?? null,
+      quantity: row.quantity,
+      category: row.category ? { id: row.category.id, name: row.category.name } : null,
+      barcode: code.barcode,
+      qrCode: code.qrCode,
+    }))
+  )
+  if (items.length === 0 && !options.replace) return
+
+  try {
+    await NativeBarcodeScanner.updateBarcodeIndex({ householdId, items, replace: options.replace })
+  } catch (error) {
+    console.warn('Failed to update barcode index:', error)
+  }
+}
+
+/**
+ * Adds one item, as returned by the item create / update APIs, to the index
+ */
+export async function indexItemBarcode(
+  householdId: string,
+  item: { id: string; name: string; barcode?: string | null; qrCode?: string | null }
+): Promise<void> {
+  if (!hasNativeBarcodeIndex() || (!item.barcode && !item.qrCode)) return
+
+  try {
+    await NativeBarcodeScanner.updateBarcodeIndex({
+      householdId,
+      items: [{
+        id: item.id,
+        name: item.name,
+        barcode: item.barcode ?? null,
+        qrCode: item.qrCode ?? null,
+      }],
+    })
+  } catch (error) {
+    console.warn('Failed to update barcode index:', error)
+  }
+}
@@ -0,0 +1,106 @@
+import { NextRequest, NextResponse } from 'next/server'
+import { getServerSession } from 'next-auth'
+import { authOptions } from '@/lib/auth'
+import { prisma } from '@/lib/prisma'
+
+/**
+ * Header carrying a client-generated key for a write. Offline clients replay queued
+ * writes after timeouts and crashes, so the same write can reach the server twice.
+ */
+export const IDEMPOTENCY_HEADER = 'Idempotency-Key'
+
+// A key that is still reserved is being handled by another request
+const IN_PROGRESS = 0
+// A reservation this old belongs to a request that died without releasing it
+const ABANDONED_AFTER_MS = 2 * 60 * 1000
+// Keys are kept long enough to cover a device that stays offline for a while
+const KEY_RETENTION_MS = 30 * 24 * 60 * 60 * 1000
+
+type RouteHandler<C> = (request: NextRequest, context: C) => Promise<Response>
+
+/**
+ * Wraps a write handler so a request repeating an earlier Idempotency-Key gets the stored
+ * response of the first request instead of applying the write again. Keys are scoped to
+ * the signed-in user. Only successful responses are stored: after a failure the key is
+ * released, so a retry runs the handler normally.
+ */
+export function idempotent<C>(handler: RouteHandler<C>): RouteHandler<C> {
+  return async (request, context) => {
+    const key = request.headers.get(IDEMPOTENCY_HEADER)?.trim()
+    if (!key) {
+      return handler(request, context)
+    }
+
+    const session = await getServerSession(authOptions)
+    const userId = (session?.user as any)?.id
+    if (!userId) {
+      return handler(request, context)
+    }
+
+    try {
+      await prisma.idempotencyKey.create({
+        data: { userId, key, status: IN_PROGRESS }
+      })
+    } catch (error: any) {
+      if (error?.code !== 'P2002') {
+        throw error
+      }
+      const existing = await prisma.idempotencyKey.findUnique({
+        where: { userId_key: { userId, key } }
+      })
+      // Released between the insert and the lookup (the first request failed) or still
+      // running: ask the client to retry rather than reporting an outcome that is not known yet
+      if (!existing || existing.status === IN_PROGRESS) {
+        if (existing && existing.createdAt.getTime() < Date.now() - ABANDONED_AFTER_MS) {
+          await prisma.idempotencyKey.deleteMany({
+            where: { userId, key, status: IN_PROGRESS, createdAt: existing.createdAt }
+          })
+        }
+        return NextResponse.json(
+          { error: 'A request with this idempotency key is still in progress' },
+          { status: 503, headers: { 'Retry-After': '1' } }
+        )
+      }
+      return NextResponse.json(existing.response ?? {}, {
+        status: existing.status,
+        headers: { 'Idempotent-Replayed': 'true' }
+      })
+    }
+
+    let response: Response
+    try {
+      response = await handler(request, context)
+    } catch (error) {
+      await releaseKey(userId, key)
+      throw error
+    }
+
+    if (response.ok) {
+      const payload = await response.clone().json().catch(() => null)
+      await prisma.idempotencyKey.update({
+        where: { userId_key: { userId, key } },
+        data: { status: response.status, response: payload ?? {} }
+      })
+    } else {
+      await releaseKey(userId, key)
+    }
+
+    pruneExpiredKeys(userId)
+    return response
+  }
+}
+
+async function releaseKey(userId: string, key: string): Promise<void> {
+  await prisma.idempotencyKey
+    .delete({ where: { userId_key: { userId, key } } })
+    .catch((error) => console.error('Failed to release idempotency key:', error))
+}
+
+// Fire and forget: an expired key only costs a row until the next write
+function pruneExpiredKeys(userId: string): void {
+  prisma.idempotencyKey
+    .deleteMany({
+      where: { userId, createdAt: { lt: new Date(Date.now() - KEY_RETENTION_MS) } }
+    })
+    .catch((error) => console.error('Failed to prune idempotency keys:', error))
+}
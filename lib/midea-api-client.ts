@@ -32,6 +32,15 @@ export class MideaAPIClient {
    * Get access token using client credentials
    */
   async getAccessToken(): Promise<string> {
+    const { accessToken } = await this.requestAccessToken()
+    return accessToken
+  }
+
+  /**
+   * Request a new access token using client credentials, with its lifetime in seconds
+   * (expiresIn is 0 when the server does not report one)
+   */
+  async requestAccessToken(): Promise<{ accessToken: string; expiresIn: number }> {
     try {
       // Midea OAuth2 token endpoint
       const tokenUrl = `${this.baseUrl}/oem/v1/oauth2/token`
@@ -53,7 +62,10 @@ export class MideaAPIClient {
       }
 
       const data = await response.json()
-      return data.access_token || data.accessToken || ''
+      return {
+        accessToken: data.access_token || data.accessToken || '',
+        expiresIn: Number(data.expires_in || data.expiresIn || 0),
+      }
     } catch (error: any) {
       console.error('Failed to get Midea access token:', error)
       throw new Error(`Failed to get access token: ${error.message}`)
@@ -1,4 +1,176 @@
 import { registerPlugin } from '@capacitor/core'
+import type { PluginListenerHandle } from '@capacitor/core'
+
+export type BarcodeFormat =
+  | 'QR_CODE'
+  | 'EAN_13'
+  | 'EAN_8'
+  | 'UPC_A'
+  | 'UPC_E'
+  | 'CODE_39'
+  | 'CODE_93'
+  | 'CODE_128'
+  | 'PDF417'
+  | 'AZTEC'
+  | 'DATA_MATRIX'
+  | 'CODABAR'
+  | 'ITF'
+
+/**
+ * Item resolution from the on-device barcode index.
+ * Present on scan results when a householdId was passed and the index is populated.
+ */
+export interface KnownItemMatch {
+  knownItem?: boolean
+  /** The item payload stored via updateBarcodeIndex */
+  item?: Record<string, any>
+}
+
+export interface ScanOptions {
+  /**
+   * Restrict detection to these formats (Android). Defaults to all formats.
+   * e.g. ['EAN_13', 'UPC_A'] for retail goods, ['QR_CODE'] for Taiwan e-invoices
+   */
+  formats?: BarcodeFormat[]
+
+  /**
+   * Target analysis resolution in sensor (landscape) orientation, e.g. { width: 1280, height: 720 } (Android)
+   */
+  resolution?: { width: number; height: number }
+
+  /**
+   * Normalized (0..1) rectangle of the upright camera frame to decode (Android).
+   * Only this region is passed to the detector and it is outlined on screen.
+   */
+  scanWindow?: { left: number; top: number; width: number; height: number }
+
+  /**
+   * Upper bound on ML Kit decodes per second; frames above the rate are dropped (Android).
+   * Omit or 0 for no limit. Only one decode is ever in flight.
+   */
+  maxDecodesPerSecond?: number
+
+  /**
+   * Time after which an in-flight decode is abandoned and counted as timed out (Android, default 1500).
+   * Frames are copied out of the camera buffer before decoding, so a stuck decode never stalls the stream.
+   * Only the result is dropped: the decode keeps running, and no further frame is admitted while one
+   * abandoned decode is still unfinished.
+   */
+  decodeTimeoutMs?: number
+
+  /**
+   * Keep the camera bound after this scan and only pause analysis (Android)
+   */
+  keepCameraBound?: boolean
+
+  /**
+   * Resolve scanned codes against this household's on-device barcode index (Android)
+   */
+  householdId?: string
+}
+
+export interface ScannerStats {
+  framesReceived: number
+  framesDropped: number
+  framesDecoded: number
+  framesTimedOut: number
+  decodeFailures: number
+  inFlight: boolean
+  abandonedInFlight: number
+  maxDecodesPerSecond: number
+  decodeTimeoutMs: number
+}
+
+export interface ScannedBarcode extends KnownItemMatch {
+  content: string
+  format: string
+  count: number
+  firstSeenAt: number
+}
+
+export interface BatchScanResult {
+  hasContent: boolean
+  barcodes: ScannedBarcode[]
+  count: number
+  cancelled?: boolean
+}
+
+/**
+ * Combined Taiwan e-invoice receipt, paired natively by invoice number.
+ * Pass leftQRCode/rightQRCode/barcode to decodeTaiwanReceipt for the full decode.
+ */
+export interface EInvoiceScanResult {
+  hasContent: boolean
+  invoiceNumber: string
+  leftQRCode: string
+  rightQRCode: string
+  barcode: string
+  invoiceDate: string
+  randomCode: string
+  salesAmount?: number
+  totalAmount?: number
+  buyerTaxId?: string
+  sellerTaxId?: string
+  cancelled?: boolean
+}
+
+export interface EInvoiceBatchResult {
+  hasContent: boolean
+  invoices: EInvoiceScanResult[]
+  count: number
+  cancelled?: boolean
+}
+
+export interface ShelfBarcode extends KnownItemMatch {
+  content: string
+  format: string
+  /** Pixel coordinates in the upright decoded frame */
+  boundingBox?: { left: number; top: number; right: number; bottom: number }
+  cornerPoints?: Array<{ x: number; y: number }>
+}
+
+export interface ShelfScanResult {
+  hasContent: boolean
+  /** Sorted top-to-bottom by row, then left-to-right */
+  barcodes: ShelfBarcode[]
+  count: number
+  /** Size of the decoded frame (the scan window when cropping) */
+  frame: { width: number; height: number }
+  cancelled?: boolean
+}
+
+export interface DecodedImageResult {
+  index: number
+  /** The URI, or 'base64' for inline payloads */
+  source?: string
+  hasContent: boolean
+  barcodes: ShelfBarcode[]
+  error?: string
+}
+
+export interface StageTiming {
+  /** Samples recorded since the last reset */
+  count: number
+  /** Samples currently held in the ring buffer the percentiles are computed over */
+  window: number
+  meanMs: number
+  p50Ms: number
+  p90Ms: number
+  p99Ms: number
+  maxMs: number
+  samplesMs?: number[]
+}
+
+export interface ScannerTimingsResult {
+  stages: Partial<
+    Record<
+      'providerAcquire' | 'bind' | 'firstFrame' | 'crop' | 'decode' | 'resolve' | 'timeToResult',
+      StageTiming
+    >
+  >
+  device: string
+  sdkInt: number
+}
 
 export interface NativeBarcodeScannerPlugin {
   /**
@@ -19,21 +191,106 @@ export interface NativeBarcodeScannerPlugin {
     asked: boolean
   }>
 
+  /**
+   * Pre-warm the camera provider and scanner views before the first scan (Android)
+   * With keepCameraBound, scans pause analysis instead of unbinding the camera until releaseScanner()
+   */
+  prepareScanner(options?: { keepCameraBound?: boolean }): Promise<{
+    prepared: boolean
+    keepCameraBound: boolean
+  }>
+
+  /**
+   * Unbind the camera and drop pre-warmed views (Android)
+   */
+  releaseScanner(): Promise<void>
+
   /**
    * Start scanning for barcodes/QR codes
    * Returns immediately, scanning continues until a barcode is detected
    */
-  startScan(): Promise<{
+  startScan(options?: ScanOptions): Promise<KnownItemMatch & {
     hasContent: boolean
     content: string
     format: string
     cancelled?: boolean
   }>
 
+  /**
+   * Start continuous batch scanning (Android)
+   * The camera stays open; each newly seen code is emitted as a "barcodeScanned" event.
+   * Resolves with the full set when the batch is stopped via stopScan() or the Done button.
+   */
+  startBatchScan(options?: ScanOptions & { dedupeWindowMs?: number }): Promise<BatchScanResult>
+
+  /**
+   * Scan a Taiwan e-invoice receipt (Android)
+   * Collects both QR codes (and the 1D barcode when visible) and resolves with one combined payload.
+   * With continuous, each invoice is emitted as an "einvoiceScanned" event and all are returned on stop.
+   * Defaults to QR_CODE and CODE_39 formats.
+   */
+  startEInvoiceScan(
+    options?: ScanOptions & { continuous?: boolean }
+  ): Promise<EInvoiceScanResult | EInvoiceBatchResult>
+
+  /**
+   * Capture every barcode in one frame, e.g. a whole cabinet shelf (Android)
+   * Resolves on the first frame with at least minBarcodes codes (default 1).
+   */
+  startShelfScan(options?: ScanOptions & { minBarcodes?: number }): Promise<ShelfScanResult>
+
+  /**
+   * Decode still images without opening the camera (Android)
+   * Each image is a content/file URI, a base64 string (data URLs accepted) or { uri } / { base64 }.
+   * Images are decoded concurrently, downsampled to at most 2048px on the longer side;
+   * each result is emitted as an "imageDecoded" event as it finishes.
+   */
+  decodeImages(
+    options: {
+      images: Array<string | { uri?: string; base64?: string }>
+      formats?: BarcodeFormat[]
+      householdId?: string
+    }
+  ): Promise<{ results: DecodedImageResult[]; count: number; decodedCount: number }>
+
   /**
    * Stop scanning
+   * In batch or continuous e-invoice mode, resolves with the collected results
+   */
+  stopScan(): Promise<void | BatchScanResult | EInvoiceBatchResult>
+
+  /**
+   * Index items of a household by their barcode and qrCode for offline resolution (Android)
+   * With replace, the household's index is rebuilt from the given items.
+   */
+  updateBarcodeIndex(options: {
+    householdId: string
+    items: Array<Record<string, any> & { id: string; barcode?: string | null; qrCode?: string | null }>
+    removeItemIds?: string[]
+    replace?: boolean
+  }): Promise<{ indexed: number; removed: number }>
+
+  /**
+   * Look a code up in the on-device barcode index (Android)
+   */
+  lookupBarcode(options: { householdId: string; barcode: string }): Promise<KnownItemMatch & { content: string }>
+
+  /**
+   * Clear the index of one household, or all households when omitted (Android)
+   */
+  clearBarcodeIndex(options?: { householdId?: string }): Promise<{ removed: number }>
+
+  /**
+   * Frame gating counters of the analysis pipeline (Android)
+   * Pass reset: true to zero the counters after reading them
+   */
+  getScannerStats(options?: { reset?: boolean }): Promise<ScannerStats>
+
+  /**
+   * Per-stage pipeline timings for fleet comparison and regression checks (Android)
+   * Stages are also emitted as android.os.Trace sections prefixed "NativeBarcodeScanner."
    */
-  stopScan(): Promise<void>
+  getScannerTimings(options?: { includeSamples?: boolean; reset?: boolean }): Promise<ScannerTimingsResult>
 
   /**
    * Hide background (for full-screen camera view)
@@ -44,6 +301,21 @@ export interface NativeBarcodeScannerPlugin {
    * Show background (restore normal view)
    */
   showBackground(): Promise<void>
+
+  addListener(
+    eventName: 'barcodeScanned',
+    listenerFunc: (barcode: ScannedBarcode & { hasContent: boolean }) => void
+  ): Promise<PluginListenerHandle>
+
+  addListener(
+    eventName: 'einvoiceScanned',
+    listenerFunc: (invoice: EInvoiceScanResult) => void
+  ): Promise<PluginListenerHandle>
+
+  addListener(
+    eventName: 'imageDecoded',
+    listenerFunc: (result: DecodedImageResult) => void
+  ): Promise<PluginListenerHandle>
 }
 
 const NativeBarcodeScanner = registerPlugin<NativeBarcodeScannerPlugin>('NativeBarcodeScanner', {
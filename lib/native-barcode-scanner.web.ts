@@ -3,7 +3,17 @@
  * Falls back to QuaggaJS for web browsers
  */
 import { WebPlugin } from '@capacitor/core'
-import type { NativeBarcodeScannerPlugin } from './native-barcode-scanner'
+import type {
+  BatchScanResult,
+  DecodedImageResult,
+  EInvoiceBatchResult,
+  EInvoiceScanResult,
+  KnownItemMatch,
+  NativeBarcodeScannerPlugin,
+  ScannerStats,
+  ScannerTimingsResult,
+  ShelfScanResult,
+} from './native-barcode-scanner'
 
 export class NativeBarcodeScannerWeb extends WebPlugin implements NativeBarcodeScannerPlugin {
   async checkPermission(): Promise<{ granted: boolean; denied: boolean; asked: boolean }> {
@@ -23,14 +33,68 @@ export class NativeBarcodeScannerWeb extends WebPlugin implements NativeBarcodeS
     return this.checkPermission()
   }
 
+  async prepareScanner(): Promise<{ prepared: boolean; keepCameraBound: boolean }> {
+    return { prepared: false, keepCameraBound: false }
+  }
+
+  async releaseScanner(): Promise<void> {
+    // No-op on web
+  }
+
   async startScan(): Promise<{ hasContent: boolean; content: string; format: string }> {
     throw new Error('NativeBarcodeScanner: startScan is not implemented on web. Use QuaggaJS fallback.')
   }
 
+  async startBatchScan(): Promise<BatchScanResult> {
+    throw new Error('NativeBarcodeScanner: startBatchScan is not implemented on web.')
+  }
+
+  async startEInvoiceScan(): Promise<EInvoiceScanResult | EInvoiceBatchResult> {
+    throw new Error('NativeBarcodeScanner: startEInvoiceScan is not implemented on web.')
+  }
+
+  async startShelfScan(): Promise<ShelfScanResult> {
+    throw new Error('NativeBarcodeScanner: startShelfScan is not implemented on web.')
+  }
+
+  async decodeImages(): Promise<{ results: DecodedImageResult[]; count: number; decodedCount: number }> {
+    throw new Error('NativeBarcodeScanner: decodeImages is not implemented on web.')
+  }
+
   async stopScan(): Promise<void> {
     // No-op on web
   }
 
+  async updateBarcodeIndex(): Promise<{ indexed: number; removed: number }> {
+    // No local index on web; lookups always go to the API
+    return { indexed: 0, removed: 0 }
+  }
+
+  async lookupBarcode(options: { householdId: string; barcode: string }): Promise<KnownItemMatch & { content: string }> {
+    return { content: options.barcode, knownItem: false }
+  }
+
+  async clearBarcodeIndex(): Promise<{ removed: number }> {
+    return { removed: 0 }
+  }
+
+  async getScannerStats(): Promise<ScannerStats> {
+    return {
+      framesReceived: 0,
+      framesDropped: 0,
+      framesDecoded: 0,
+      framesTimedOut: 0,
+      decodeFailures: 0,
+      inFlight: false,
+      maxDecodesPerSecond: 0,
+      decodeTimeoutMs: 0,
+    }
+  }
+
+  async getScannerTimings(): Promise<ScannerTimingsResult> {
+    return { stages: {}, device: 'web', sdkInt: 0 }
+  }
+
   async hideBackground(): Promise<void> {
     // No-op on web
   }
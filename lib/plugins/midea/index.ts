@@ -1,6 +1,7 @@
 // Midea Provisioning Capacitor Plugin Interface
 
 import { registerPlugin } from '@capacitor/core'
+import type { PluginListenerHandle } from '@capacitor/core'
 
 export interface MideaInitializeOptions {
   clientId: string
@@ -8,6 +9,8 @@ export interface MideaInitializeOptions {
   serverHost: string
   clientSrc?: string
   accessToken: string
+  expiresIn?: number // Access token lifetime in seconds, if known
+  tokenRefreshUrl?: string // Backend endpoint the native SDK refreshes expired tokens from
 }
 
 export interface MideaStartProvisioningOptions {
@@ -18,36 +21,98 @@ export interface MideaStartProvisioningOptions {
   routerSecurityParams?: string // Default: "[WPA2-PSK-CCMP][RSN-PSK-CCMP][ESS]"
 }
 
+// Fields are present when the SDK build exposes them
+export interface MideaDeviceInfo {
+  deviceId: string
+  deviceName: string
+  deviceType?: string
+  deviceSubType?: string
+  deviceSn?: string
+  deviceSsid?: string
+  mac?: string
+  modelNumber?: string
+  protocolVersion?: string
+}
+
+export interface MideaBatchProvisioningOptions {
+  deviceSsids: string[] // Device AP SSIDs, provisioned one after another
+  ssid: string // Router SSID shared by every device
+  password: string // Router password
+  routerSecurityParams?: string // Default: "[WPA2-PSK-CCMP][RSN-PSK-CCMP][ESS]"
+}
+
+export type MideaJobStatus = 'queued' | 'provisioning' | 'success' | 'failed' | 'cancelled'
+
+export interface MideaProvisioningStep {
+  step: string // MSDeviceConfigStep name
+  startedAt: number
+  offsetMs: number // Since the job started
+  durationMs?: number // Missing while the step is still running
+}
+
+export interface MideaProvisioningProgressEvent {
+  token: string
+  deviceSsid: string
+  status: MideaJobStatus
+  step?: string
+  timestamp: number
+  elapsedMs: number // Since the job started
+  previousStep?: string // Step that just ended
+  previousStepMs?: number
+  timeline?: MideaProvisioningStep[] // Full timeline once the job has finished
+  error?: string // "timed out" when the SDK gave no result within 4 minutes
+}
+
+export interface MideaProvisioningJob {
+  token: string
+  deviceSsid: string
+  status: MideaJobStatus
+  queuePosition?: number // 0 while running, 1.. while waiting
+  step?: string
+  queuedAt: number
+  startedAt?: number
+  finishedAt?: number
+  deviceId?: string
+  deviceName?: string
+  deviceInfo?: MideaDeviceInfo
+  error?: string
+  errorCode?: string
+  subErrorCode?: string
+  timeline?: MideaProvisioningStep[]
+}
+
 export interface MideaProvisioningResult {
   success: boolean
   deviceId?: string
   deviceName?: string
-  status: 'provisioning' | 'success' | 'failed'
+  status: 'queued' | 'provisioning' | 'success' | 'failed'
   token?: string
   error?: string
   errorCode?: string
   subErrorCode?: string
   message?: string
   mode?: string
-  deviceInfo?: {
-    deviceId: string
-    deviceName: string
-    deviceType?: string
-  }
+  deviceInfo?: MideaDeviceInfo
 }
 
-export interface MideaStatusResult {
+export interface MideaStatusResult extends Partial<Omit<MideaProvisioningJob, 'status'>> {
   success: boolean
-  status: 'provisioning' | 'idle' | 'success' | 'failed'
+  status: MideaJobStatus | 'idle'
   token?: string
 }
 
 export interface MideaProvisioningPlugin {
-  initialize(options: MideaInitializeOptions): Promise<{ initialized: boolean; native: boolean; message: string }>
+  initialize(options: MideaInitializeOptions): Promise<{ initialized: boolean; native: boolean; message: string; alreadyInitialized?: boolean }>
   startProvisioning(options: MideaStartProvisioningOptions): Promise<MideaProvisioningResult>
+  startBatchProvisioning(options: MideaBatchProvisioningOptions): Promise<{ success: boolean; jobs: MideaProvisioningJob[]; mode: string }>
   getStatus(options: { token?: string }): Promise<MideaStatusResult>
-  stopProvisioning(): Promise<{ success: boolean; message: string }>
+  getProvisioningJobs(): Promise<{ jobs: MideaProvisioningJob[]; queued: number; active: string | null }>
+  stopProvisioning(options?: { token?: string }): Promise<{ success: boolean; message: string }>
   resumeProvisioning(): Promise<{ success: boolean; message: string }>
+  addListener(
+    eventName: 'provisioningProgress',
+    listenerFunc: (event: MideaProvisioningProgressEvent) => void
+  ): Promise<PluginListenerHandle>
 }
 
 export const MideaProvisioning = registerPlugin<MideaProvisioningPlugin>('MideaProvisioning', {
@@ -1,14 +1,18 @@
 // Web fallback for Midea Provisioning Plugin
 
+import { WebPlugin } from '@capacitor/core'
 import { 
   MideaProvisioningPlugin, 
   MideaInitializeOptions, 
   MideaStartProvisioningOptions,
+  MideaBatchProvisioningOptions,
+  MideaProvisioningJob,
   MideaProvisioningResult,
   MideaStatusResult
 } from './index'
 
-export class MideaProvisioning implements MideaProvisioningPlugin {
+// provisioningProgress is never emitted on web; use getStatus polling instead
+export class MideaProvisioning extends WebPlugin implements MideaProvisioningPlugin {
   async initialize(options: MideaInitializeOptions) {
     // Web fallback: use API endpoint
     const response = await fetch('/api/mqtt/midea/initialize', {
@@ -51,6 +55,33 @@ export class MideaProvisioning implements MideaProvisioningPlugin {
     return await response.json()
   }
 
+  async startBatchProvisioning(options: MideaBatchProvisioningOptions) {
+    // Web fallback: the API provisions one device per request, so submit them in order
+    const jobs: MideaProvisioningJob[] = []
+    for (const deviceSsid of options.deviceSsids) {
+      const result = await this.startProvisioning({
+        mode: 'ap',
+        deviceSsid,
+        ssid: options.ssid,
+        password: options.password,
+        routerSecurityParams: options.routerSecurityParams,
+      })
+      jobs.push({
+        token: result.token || '',
+        deviceSsid,
+        status: result.status,
+        queuedAt: Date.now(),
+        error: result.error,
+      })
+    }
+    return { success: jobs.every(job => job.status !== 'failed'), jobs, mode: 'ap' }
+  }
+
+  async getProvisioningJobs() {
+    // Web fallback: jobs are tracked by the API, not here
+    return { jobs: [], queued: 0, active: null }
+  }
+
   async getStatus(options: { token?: string }): Promise<MideaStatusResult> {
     const response = await fetch(`/api/mqtt/provisioning?token=${options.token || ''}`, {
       method: 'GET',
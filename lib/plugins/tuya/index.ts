@@ -73,7 +73,7 @@ export interface TuyaAddMemberToHomeOptions {
 }
 
 export interface TuyaProvisioningPlugin {
-  initialize(options?: TuyaInitializeOptions): Promise<{ initialized: boolean; loggedIn?: boolean }>
+  initialize(options?: TuyaInitializeOptions): Promise<{ initialized: boolean; loggedIn?: boolean; alreadyInitialized?: boolean }>
   login(options: TuyaLoginOptions): Promise<TuyaLoginResult>
   logout(): Promise<{ success: boolean }>
   isLoggedIn(): Promise<{ loggedIn: boolean }>
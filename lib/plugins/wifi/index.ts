@@ -2,6 +2,7 @@
 // Native WiFi Plugin Interface
 
 import { registerPlugin } from '@capacitor/core'
+import type { PluginListenerHandle } from '@capacitor/core'
 
 export interface WiFiNetwork {
   ssid: string
@@ -12,6 +13,81 @@ export interface WiFiNetwork {
   isConnected?: boolean
 }
 
+/**
+ * 配网热点厂商：midea_xx_、SmartLife-、shelly*-、ESP_ / ESP32- / ESP8266-
+ * Vendors whose provisioning hotspots can be filtered natively
+ */
+export type DeviceHotspotVendor = 'midea' | 'tuya' | 'shelly' | 'esp'
+
+export interface ScanNetworksOptions {
+  /**
+   * 等待扫描结果的最长时间（毫秒），默认 10000；超时返回系统缓存的结果
+   * Max time to wait for fresh results in ms (default 10000); on timeout the OS cached results are returned
+   */
+  timeout?: number
+  /**
+   * 缓存结果不超过该时长（毫秒）时直接返回，不消耗扫描配额，默认 5000；0 表示总是尝试扫描
+   * Return cached results younger than this many ms without spending a scan (default 5000; 0 always tries to scan)
+   */
+  maxAge?: number
+  /**
+   * 只返回设备配网热点（true 为全部厂商，或指定厂商列表），按信号强度排序并按厂商分组
+   * Only return device provisioning hotspots (true for every vendor, or a vendor list),
+   * strongest first and grouped by vendor
+   */
+  deviceHotspots?: boolean | DeviceHotspotVendor[]
+}
+
+export interface ScanNetworksResult {
+  networks: Array<WiFiNetwork & { vendor?: DeviceHotspotVendor }>
+  /**
+   * 使用 deviceHotspots 时按厂商分组的热点
+   * Hotspots grouped by vendor when deviceHotspots is set
+   */
+  groups?: Partial<Record<DeviceHotspotVendor, Array<WiFiNetwork & { vendor: DeviceHotspotVendor }>>>
+  /**
+   * 结果来自之前的扫描时为 true（仍足够新、被节流或超时）
+   * True when the results come from an earlier scan (fresh enough, throttled or timed out)
+   */
+  fromCache?: boolean
+  /**
+   * 结果距今的时长（毫秒），未知时为 -1
+   * Age of the results in ms, -1 when unknown
+   */
+  ageMs?: number
+  /**
+   * 当前 2 分钟窗口内剩余的扫描次数（系统限制前台每 2 分钟 4 次）
+   * Scans left in the rolling 2-minute window (the OS allows 4 foreground scans per 2 minutes)
+   */
+  remainingScans?: number
+  /**
+   * 配额耗尽时，距离下一次可扫描的时长（毫秒）
+   * When the budget is used up, ms until the next scan can be requested
+   */
+  retryAfterMs?: number
+}
+
+export interface NetworkWatchOptions {
+  /**
+   * 主动扫描间隔（毫秒），默认 40000（系统限制前台每 2 分钟 4 次扫描，监听最多用 3 次，留 1 次给 scanNetworks）
+   * Interval between active scans in ms (default 40000). The OS allows 4 foreground scans per 2 minutes;
+   * the watch uses at most 3 and always leaves one for scanNetworks
+   */
+  intervalMs?: number
+  /**
+   * 信号强度变化达到该值（dBm）才上报，默认 5
+   * Minimum signal change in dBm before a network is reported as updated (default 5)
+   */
+  rssiThreshold?: number
+}
+
+export interface NetworksChangedEvent {
+  added: WiFiNetwork[]
+  updated: WiFiNetwork[]
+  removed: Array<Pick<WiFiNetwork, 'ssid' | 'bssid'>>
+  timestamp: number
+}
+
 export interface WiFiPlugin {
   /**
    * 获取当前连接的 WiFi SSID
@@ -22,8 +98,27 @@ export interface WiFiPlugin {
   /**
    * 扫描可用的 WiFi 网络（需要位置权限）
    * Scan available WiFi networks (requires location permission)
+   * Resolves as soon as the OS reports scan results
+   */
+  scanNetworks(options?: ScanNetworksOptions): Promise<ScanNetworksResult>
+
+  /**
+   * 开始监听网络列表变化，返回当前列表；之后通过 networksChanged 事件推送增量
+   * Start watching the network list; resolves with the current list, then pushes
+   * deltas through networksChanged events
    */
-  scanNetworks(): Promise<{ networks: WiFiNetwork[] }>
+  startNetworkWatch(options?: NetworkWatchOptions): Promise<{ networks: WiFiNetwork[] }>
+
+  /**
+   * 停止监听网络列表变化
+   * Stop watching the network list
+   */
+  stopNetworkWatch(): Promise<void>
+
+  addListener(
+    eventName: 'networksChanged',
+    listenerFunc: (event: NetworksChangedEvent) => void
+  ): Promise<PluginListenerHandle>
 
   /**
    * 检查是否有 WiFi 扫描权限
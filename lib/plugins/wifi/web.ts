@@ -1,20 +1,30 @@
 // WiFi 插件 Web 实现（回退到 localStorage）
 // WiFi Plugin Web Implementation (fallback to localStorage)
 
-import type { WiFiNetwork, WiFiPlugin } from './index'
+import { WebPlugin } from '@capacitor/core'
+import type { ScanNetworksResult, WiFiNetwork, WiFiPlugin } from './index'
 
-export class WiFiWeb implements WiFiPlugin {
+export class WiFiWeb extends WebPlugin implements WiFiPlugin {
   async getCurrentSSID(): Promise<{ ssid: string | null }> {
     // Web 环境无法获取当前 SSID
     return { ssid: null }
   }
 
-  async scanNetworks(): Promise<{ networks: WiFiNetwork[] }> {
+  async scanNetworks(): Promise<ScanNetworksResult> {
     // Web 环境无法扫描 WiFi，返回空数组
     console.warn('WiFi scanning is not available on web. Please use native app or server-side scanning.')
+    return { networks: [], fromCache: false, ageMs: -1 }
+  }
+
+  async startNetworkWatch(): Promise<{ networks: WiFiNetwork[] }> {
+    // Web 环境无法扫描 WiFi，不会推送 networksChanged 事件
     return { networks: [] }
   }
 
+  async stopNetworkWatch(): Promise<void> {
+    // No-op on web
+  }
+
   async checkPermission(): Promise<{ granted: boolean }> {
     // Web 环境总是返回 false
     return { granted: false }
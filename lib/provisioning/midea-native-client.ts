@@ -7,6 +7,9 @@ import { MideaProvisioning } from '../plugins/midea'
 import type {
   MideaInitializeOptions,
   MideaStartProvisioningOptions,
+  MideaBatchProvisioningOptions,
+  MideaProvisioningJob,
+  MideaProvisioningProgressEvent,
   MideaProvisioningResult,
 } from '../plugins/midea'
 
@@ -35,12 +38,27 @@ export async function ensureMideaInitialized(): Promise<boolean> {
 
     const config = await response.json()
 
+    // sdk-config does not hand out user tokens; fetch one from the same endpoint the native side refreshes from
+    let accessToken: string = config.accessToken || ''
+    let expiresIn: number | undefined = config.expiresIn
+    if (!accessToken) {
+      const tokenResponse = await fetch('/api/mqtt/midea/token', { method: 'POST' })
+      if (tokenResponse.ok) {
+        const token = await tokenResponse.json()
+        accessToken = token.accessToken || ''
+        expiresIn = token.expiresIn
+      }
+    }
+
     const initOptions: MideaInitializeOptions = {
       clientId: config.clientId || process.env.MIDEA_CLIENT_ID || '',
       clientSecret: config.clientSecret || process.env.MIDEA_CLIENT_SECRET || '',
       serverHost: config.serverHost || process.env.MIDEA_SERVER_HOST || 'https://obm.midea.com',
       clientSrc: config.clientSrc || process.env.MIDEA_CLIENT_SRC || '',
-      accessToken: config.accessToken || '', // Should be obtained from user login
+      accessToken,
+      expiresIn,
+      // Native token store refreshes expired tokens from here using the WebView session
+      tokenRefreshUrl: new URL('/api/mqtt/midea/token', window.location.origin).toString(),
     }
 
     if (!initOptions.clientId || !initOptions.clientSecret || !initOptions.accessToken) {
@@ -85,6 +103,37 @@ export async function startNativeMideaProvisioning(
   }
 }
 
+/**
+ * Queue AP provisioning for several devices sharing one router.
+ * Native jobs run back-to-back on one SDK session; poll getMideaProvisioningStatus(token) per job.
+ */
+export async function startNativeMideaBatchProvisioning(
+  options: MideaBatchProvisioningOptions
+): Promise<MideaProvisioningJob[]> {
+  if (canUseNativeMideaProvisioning()) {
+    await ensureMideaInitialized()
+  }
+
+  const result = await MideaProvisioning.startBatchProvisioning(options)
+  return result.jobs
+}
+
+/**
+ * Subscribe to native provisioning progress (every SDK step, with per-step timings).
+ * Optionally limited to one token. Returns an unsubscribe function.
+ */
+export async function onMideaProvisioningProgress(
+  listener: (event: MideaProvisioningProgressEvent) => void,
+  token?: string
+): Promise<() => Promise<void>> {
+  const handle = await MideaProvisioning.addListener('provisioningProgress', event => {
+    if (!token || event.token === token) {
+      listener(event)
+    }
+  })
+  return () => handle.remove()
+}
+
 /**
  * Get provisioning status
  */
@@ -102,19 +151,19 @@ export async function getMideaProvisioningStatus(token?: string): Promise<any> {
 }
 
 /**
- * Stop provisioning
+ * Stop provisioning (one job by token, or everything running and queued)
  */
-export async function stopMideaProvisioning(): Promise<void> {
+export async function stopMideaProvisioning(token?: string): Promise<void> {
   if (!canUseNativeMideaProvisioning()) {
-    await MideaProvisioning.stopProvisioning()
+    await MideaProvisioning.stopProvisioning({ token })
     return
   }
 
   try {
-    await MideaProvisioning.stopProvisioning()
+    await MideaProvisioning.stopProvisioning({ token })
   } catch (error) {
     console.error('Failed to stop Midea provisioning:', error)
-    await MideaProvisioning.stopProvisioning()
+    await MideaProvisioning.stopProvisioning({ token })
   }
 }
 
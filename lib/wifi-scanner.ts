@@ -3,6 +3,7 @@
 // WiFi Scanner Utility - Scans available WiFi networks
 
 import WiFiPlugin from './plugins/wifi'
+import type { DeviceHotspotVendor } from './plugins/wifi'
 
 /**
  * WiFi 網絡信息
@@ -104,6 +105,12 @@ export class WiFiScanner {
       const result = await WiFiPlugin.scanNetworks()
       const networks = result.networks || []
       
+      if (result.fromCache) {
+        console.log(
+          `[WiFiScanner] Native scan returned cached results (age ${result.ageMs}ms, ` +
+          `${result.remainingScans} scans left, retry after ${result.retryAfterMs}ms)`
+        )
+      }
       console.log(`[WiFiScanner] Native scan completed: found ${networks.length} networks`)
       
       return networks
@@ -140,6 +147,58 @@ export class WiFiScanner {
     }
   }
 
+  /**
+   * 掃描設備配網熱點（僅 Android），由原生層過濾、按信號排序並按廠商分組
+   * Scan for device provisioning hotspots (Android only); filtered, sorted and grouped natively
+   */
+  static async scanDeviceHotspots(
+    vendors: DeviceHotspotVendor[] | true = true
+  ): Promise<{ hotspots: WiFiNetwork[]; groups: Partial<Record<DeviceHotspotVendor, WiFiNetwork[]>> }> {
+    const result = await WiFiPlugin.scanNetworks({ deviceHotspots: vendors })
+    return { hotspots: result.networks || [], groups: result.groups || {} }
+  }
+
+  /**
+   * 持續監聽原生 WiFi 網絡列表（僅 Android）
+   * 原生層只推送增量（新增 / 信號變化 / 消失），這裡維護完整列表並按信號強度排序後回調
+   * Watch the native network list (Android only). The plugin pushes only deltas;
+   * the full list is kept here and handed to onChange sorted by signal strength.
+   * Returns a function that stops the watch.
+   */
+  static async watchNative(
+    onChange: (networks: WiFiNetwork[]) => void,
+    options?: { intervalMs?: number; rssiThreshold?: number }
+  ): Promise<() => Promise<void>> {
+    const networks = new Map<string, WiFiNetwork>()
+    const keyOf = (network: Pick<WiFiNetwork, 'ssid' | 'bssid'>) => network.bssid || network.ssid
+    const emit = () => {
+      onChange(
+        Array.from(networks.values()).sort((a, b) => (b.signalStrength ?? -127) - (a.signalStrength ?? -127))
+      )
+    }
+
+    const handle = await WiFiPlugin.addListener('networksChanged', event => {
+      event.added.forEach(network => networks.set(keyOf(network), network))
+      event.updated.forEach(network => networks.set(keyOf(network), network))
+      event.removed.forEach(network => networks.delete(keyOf(network)))
+      emit()
+    })
+
+    try {
+      const initial = await WiFiPlugin.startNetworkWatch(options)
+      initial.networks.forEach(network => networks.set(keyOf(network), network))
+      emit()
+    } catch (error) {
+      await handle.remove()
+      throw error
+    }
+
+    return async () => {
+      await handle.remove()
+      await WiFiPlugin.stopNetworkWatch()
+    }
+  }
+
   /**
    * 透過伺服器端掃描（需要 Node.js 環境支援）
    */
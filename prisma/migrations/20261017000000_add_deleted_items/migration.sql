@@ -0,0 +1,39 @@
+-- Migration: Add deleted_items tombstones for item delta sync
+-- Created: 2026-10-17
+-- Description: Records every deleted item so /api/warehouse/items/changes can report
+-- deletions. Items are removed from several routes (and by cascades), so the tombstone
+-- is written by a trigger rather than by each caller.
+
+-- No foreign key to households: the trigger also fires while a household is being
+-- cascade-deleted, when the household row is already gone
+CREATE TABLE IF NOT EXISTS "deleted_items" (
+    "id" TEXT NOT NULL DEFAULT (gen_random_uuid())::text,
+    "item_id" TEXT NOT NULL,
+    "household_id" TEXT NOT NULL,
+    "deleted_at" TIMESTAMPTZ(6) NOT NULL DEFAULT now(),
+    CONSTRAINT "deleted_items_pkey" PRIMARY KEY ("id")
+);
+
+CREATE INDEX IF NOT EXISTS "deleted_items_household_id_deleted_at_idx"
+ON "deleted_items"("household_id", "deleted_at");
+
+-- Delta sync scans a household's items by updated_at
+CREATE INDEX IF NOT EXISTS "items_household_id_updated_at_idx"
+ON "items"("household_id", "updated_at");
+
+CREATE OR REPLACE FUNCTION record_deleted_item()
+RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO "deleted_items" ("item_id", "household_id")
+    VALUES (OLD."id", OLD."household_id");
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trigger_record_deleted_item ON "items";
+CREATE TRIGGER trigger_record_deleted_item
+    AFTER DELETE ON "items"
+    FOR EACH ROW
+    EXECUTE FUNCTION record_deleted_item();
+
+ALTER TABLE IF EXISTS public.deleted_items ENABLE ROW LEVEL SECURITY;
@@ -0,0 +1,23 @@
+-- Migration: Add idempotency_keys for replayed item writes
+-- Created: 2026-10-18
+-- Description: Offline clients send every queued write with an Idempotency-Key header.
+-- The first successful response is stored per (user, key) and returned for replays,
+-- so a write that timed out on the client is not applied a second time.
+
+CREATE TABLE IF NOT EXISTS "idempotency_keys" (
+    "id" TEXT NOT NULL DEFAULT (gen_random_uuid())::text,
+    "user_id" TEXT NOT NULL,
+    "key" TEXT NOT NULL,
+    "status" INTEGER NOT NULL,
+    "response" JSONB,
+    "created_at" TIMESTAMPTZ(6) NOT NULL DEFAULT now(),
+    CONSTRAINT "idempotency_keys_pkey" PRIMARY KEY ("id")
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS "idempotency_keys_user_id_key_key"
+ON "idempotency_keys"("user_id", "key");
+
+CREATE INDEX IF NOT EXISTS "idempotency_keys_user_id_created_at_idx"
+ON "idempotency_keys"("user_id", "created_at");
+
+ALTER TABLE IF EXISTS public.idempotency_keys ENABLE ROW LEVEL SECURITY;